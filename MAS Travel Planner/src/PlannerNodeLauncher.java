@@ -0,0 +1,42 @@
+import jade.core.Runtime;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.wrapper.*;
+
+/**
+ * Adds planner instances to a running platform from another container,
+ * possibly on another host. User agents pick them up through the DF.
+ *
+ * Usage: PlannerNodeLauncher [mainHost] [count] [namePrefix]
+ */
+public class PlannerNodeLauncher {
+
+    public static void main(String[] args) {
+        System.setProperty("jade_core_messaging_MessageManager_level", "SEVERE");
+        System.setProperty("jade.logging", "off");
+
+        String mainHost = args.length > 0 ? args[0] : "localhost";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String prefix = args.length > 2 ? args[2] : "planner-node-" + ProcessHandle.current().pid();
+
+        try {
+            Runtime runtime = Runtime.instance();
+
+            Profile profile = new ProfileImpl();
+            profile.setParameter(Profile.MAIN_HOST, mainHost);
+            profile.setParameter(Profile.CONTAINER_NAME, prefix);
+
+            AgentContainer container = runtime.createAgentContainer(profile);
+
+            for (int i = 1; i <= count; i++) {
+                container.createNewAgent(prefix + "-" + i, "agents.PlannerAgent", null).start();
+            }
+
+            System.out.println("Started " + count + " planner(s) in container " + prefix +
+                    " (main host " + mainHost + ")");
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import jade.core.Runtime;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.wrapper.*;
+
+/**
+ * Adds supplier shards to a running platform from another container,
+ * possibly on another host. Each shard loads only its share of the
+ * database and registers the destinations it holds, so planners route to
+ * it through the DF.
+ *
+ * Usage: SupplierNodeLauncher [mainHost] [hotel|transport] [index/count,...] [namePrefix]
+ * e.g.   SupplierNodeLauncher 10.0.0.5 hotel 1/3,2/3
+ */
+public class SupplierNodeLauncher {
+
+    public static void main(String[] args) {
+        System.setProperty("jade_core_messaging_MessageManager_level", "SEVERE");
+        System.setProperty("jade.logging", "off");
+
+        String mainHost = args.length > 0 ? args[0] : "localhost";
+        String kind = args.length > 1 ? args[1] : "hotel";
+        String[] shards = (args.length > 2 ? args[2] : "0/1").split(",");
+        String prefix = args.length > 3 ? args[3] : kind + "-node-" + ProcessHandle.current().pid();
+        String className = "transport".equals(kind) ? "agents.TransportAgent" : "agents.HotelAgent";
+
+        try {
+            Runtime runtime = Runtime.instance();
+
+            Profile profile = new ProfileImpl();
+            profile.setParameter(Profile.MAIN_HOST, mainHost);
+            profile.setParameter(Profile.CONTAINER_NAME, prefix);
+
+            AgentContainer container = runtime.createAgentContainer(profile);
+
+            for (String shard : shards) {
+                String name = prefix + "-" + shard.trim().replace("/", "of");
+                container.createNewAgent(name, className, new Object[]{shard.trim()}).start();
+            }
+
+            System.out.println("Started " + shards.length + " " + kind + " shard(s) in container " + prefix +
+                    " (main host " + mainHost + ")");
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
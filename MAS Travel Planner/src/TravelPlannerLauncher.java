@@ -3,6 +3,9 @@ import jade.core.Profile;
 import jade.core.ProfileImpl;
 import jade.wrapper.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class TravelPlannerLauncher {
 
     public static void main(String[] args) {
@@ -23,32 +26,51 @@ public class TravelPlannerLauncher {
 
             // Create and start agents
 
-            AgentController transportAgent = mainContainer.createNewAgent(
-                    "transport", "agents.TransportAgent", null);
+            // Supplier shards, e.g. -Dhotel.shards=3; the first keeps the plain name
+            StringBuilder supplierNames = new StringBuilder();
+            List<AgentController> transportAgents = createSuppliers(mainContainer, "transport",
+                    "agents.TransportAgent", Integer.getInteger("transport.shards", 1), supplierNames);
 
             AgentController userAgent = mainContainer.createNewAgent(
                     "user", "agents.GUIUserAgent", null);
 
-            AgentController plannerAgent = mainContainer.createNewAgent(
-                    "planner", "agents.PlannerAgent", null);
+            // Planner pool size, e.g. -Dplanners=4; the first keeps the name "planner"
+            int plannerCount = Math.max(1, Integer.getInteger("planners", 1));
+            List<AgentController> plannerAgents = new ArrayList<>();
+            StringBuilder plannerNames = new StringBuilder();
+            for (int i = 1; i <= plannerCount; i++) {
+                String name = i == 1 ? "planner" : "planner-" + i;
+                plannerAgents.add(mainContainer.createNewAgent(name, "agents.PlannerAgent", null));
+                plannerNames.append(name).append(";");
+            }
 
-            AgentController hotelAgent = mainContainer.createNewAgent(
-                    "hotel", "agents.HotelAgent", null);
+            List<AgentController> hotelAgents = createSuppliers(mainContainer, "hotel",
+                    "agents.HotelAgent", Integer.getInteger("hotel.shards", 1), supplierNames);
 
             AgentController paymentAgent = mainContainer.createNewAgent(
                     "payment", "agents.PaymentAgent", null);
 
+            AgentController destinationAgent = mainContainer.createNewAgent(
+                    "destinations", "agents.DestinationAgent", null);
+
             // Start all agents
             userAgent.start();
-            plannerAgent.start();
-            transportAgent.start();
-            hotelAgent.start();
+            for (AgentController plannerAgent : plannerAgents) {
+                plannerAgent.start();
+            }
+            for (AgentController transportAgent : transportAgents) {
+                transportAgent.start();
+            }
+            for (AgentController hotelAgent : hotelAgents) {
+                hotelAgent.start();
+            }
             paymentAgent.start();
+            destinationAgent.start();
 
             // After starting agents, add:
             AgentController sniffer = mainContainer.createNewAgent(
                     "sniffer", "jade.tools.sniffer.Sniffer",
-                    new Object[]{"user;planner;transport;hotel;payment"});
+                    new Object[]{"user;" + plannerNames + supplierNames + "payment"});
             sniffer.start();
 
             System.out.println("\n=================================");
@@ -59,4 +81,21 @@ public class TravelPlannerLauncher {
             e.printStackTrace();
         }
     }
+
+    /**
+     * One supplier agent per shard, each started with its "index/count";
+     * a single agent holds the whole database and gets no argument.
+     */
+    private static List<AgentController> createSuppliers(AgentContainer container, String name, String className,
+                                                         int shards, StringBuilder names) throws StaleProxyException {
+        List<AgentController> suppliers = new ArrayList<>();
+        int count = Math.max(1, shards);
+        for (int i = 0; i < count; i++) {
+            String agentName = i == 0 ? name : name + "-" + (i + 1);
+            Object[] args = count == 1 ? null : new Object[]{i + "/" + count};
+            suppliers.add(container.createNewAgent(agentName, className, args));
+            names.append(agentName).append(";");
+        }
+        return suppliers;
+    }
 }
\ No newline at end of file
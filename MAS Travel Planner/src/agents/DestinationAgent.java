@@ -0,0 +1,114 @@
+package agents;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import inventory.DestinationIndex;
+import inventory.FileWatcher;
+import inventory.GeoIndex;
+import planner.PlannerProtocol;
+import planner.ServiceDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Answers destination autocomplete queries from the GUI with the
+ * destinations the hotel and transport databases know, matched by name or
+ * alias. A place with no matching destination but known coordinates, say
+ * "Lyon", gets the nearest destinations instead. The index is rebuilt on a
+ * FileWatcher thread when one of the files changes and swapped in whole, so
+ * a query never waits on a rebuild.
+ */
+public class DestinationAgent extends Agent {
+    private static final String[] DATABASES = {"hotel_data.json", "transport_data.json"};
+    private static final int NEAREST_SUGGESTIONS = 5;
+
+    private final File databaseDir = new File("src" + File.separator + "database");
+    private final AtomicReference<DestinationIndex> index = new AtomicReference<>(DestinationIndex.empty());
+    private FileWatcher watcher;
+
+    @Override
+    protected void setup() {
+        System.out.println("DestinationAgent " + getLocalName() + " is ready.");
+        rebuildIndex();
+        List<String> watched = new ArrayList<>(Arrays.asList(DATABASES));
+        watched.add(DestinationIndex.ALIAS_FILE);
+        watched.add(DestinationIndex.COORDINATES_FILE);
+        watcher = new FileWatcher("DestinationAgent", databaseDir, watched, this::rebuildIndex);
+        watcher.start();
+        ServiceDirectory.register(this, ServiceDirectory.DESTINATIONS);
+
+        MessageTemplate autocomplete = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.QUERY_REF),
+                MessageTemplate.MatchProtocol(PlannerProtocol.AUTOCOMPLETE));
+        addBehaviour(new CyclicBehaviour() {
+            @Override
+            public void action() {
+                ACLMessage msg = receive(autocomplete);
+                if (msg != null) {
+                    answer(msg);
+                } else {
+                    block();
+                }
+            }
+        });
+    }
+
+    private void answer(ACLMessage msg) {
+        String typed = msg.getContent() == null ? "" : msg.getContent();
+        DestinationIndex destinations = index.get();
+        List<String> suggestions = destinations.complete(typed, DestinationIndex.MAX_SUGGESTIONS);
+
+        ACLMessage reply = msg.createReply();
+        reply.setPerformative(ACLMessage.INFORM);
+        if (suggestions.isEmpty()) {
+            suggestions = new ArrayList<>();
+            for (GeoIndex.Nearby nearby : destinations.nearest(typed, NEAREST_SUGGESTIONS)) {
+                suggestions.add(nearby.getDestination());
+            }
+            if (!suggestions.isEmpty()) {
+                reply.addUserDefinedParameter(PlannerProtocol.NEAREST_TO, typed.trim());
+            }
+        }
+        try {
+            reply.setContentObject(suggestions.toArray(new String[0]));
+            send(reply);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Runs at setup and then on the watcher thread; a failed build keeps the current index
+    private void rebuildIndex() {
+        try {
+            Set<String> names = new TreeSet<>();
+            for (String database : DATABASES) {
+                try {
+                    names.addAll(DestinationIndex.namesIn(new File(databaseDir, database)));
+                } catch (IOException e) {
+                    System.err.println("ERROR: Unable to read destinations from " + database + " - " + e.getMessage());
+                }
+            }
+            DestinationIndex built = DestinationIndex.load(names, databaseDir);
+            index.set(built);
+            System.out.println("DestinationAgent: Indexed " + built.destinations().size() + " destinations");
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: Unable to rebuild the destination index - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected void takeDown() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+        ServiceDirectory.deregister(this);
+        System.out.println("DestinationAgent " + getLocalName() + " terminating.");
+    }
+}
@@ -2,20 +2,40 @@ package agents;
 import jade.core.Agent;
 import jade.core.behaviours.*;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import javax.swing.SwingUtilities;
 import jade.lang.acl.UnreadableException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import gui.TravelPlannerGUI;
 import models.TravelPlan;
 import models.UserRequest;
+import models.MultiDestinationRequest;
 import models.PaymentConfirmation;
 import models.PaymentRequest;
+import planner.PlannerProtocol;
+import planner.PlannerRouter;
+import planner.ServiceDirectory;
 
 
 public class GUIUserAgent extends Agent {
     private TravelPlannerGUI gui;
     private TravelPlan[] currentPlans;
+    private volatile String currentSearchId; // replies from older searches are ignored
+    private long searchCounter = 0;
+    private volatile UserRequest currentRequest; // resent while the planner is busy
+    private volatile int busyRetries = 0;
+    private volatile String currentSuggestionId; // only the latest keystroke's suggestions are shown
+    private long suggestionCounter = 0;
+
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final long BUSY_BACKOFF_BASE_MS = 1000;
+    private static final long BUSY_BACKOFF_MAX_MS = 30000;
+    private final ServiceDirectory directory = new ServiceDirectory();
+    private final PlannerRouter plannerRouter = new PlannerRouter(directory);
 
     @Override
     protected void setup() {
@@ -26,10 +46,13 @@ public class GUIUserAgent extends Agent {
             gui = new TravelPlannerGUI(this);
         });
 
+        directory.watch(this, ServiceDirectory.PLANNER, ServiceDirectory.PAYMENT, ServiceDirectory.DESTINATIONS);
+        MessageTemplate notFromDF = ServiceDirectory.notFromDF(this);
+
         addBehaviour(new CyclicBehaviour() {
             @Override
             public void action() {
-                ACLMessage msg = receive();
+                ACLMessage msg = receive(notFromDF);
                 if (msg != null) {
                     handleMessage(msg);
                 } else {
@@ -45,14 +68,31 @@ public class GUIUserAgent extends Agent {
                 Object content = msg.getContentObject();
 
                 if (content instanceof TravelPlan[]) {
+                    if (isStaleSearchReply(msg)) {
+                        return;
+                    }
                     currentPlans = (TravelPlan[]) content;
-                    displayPlansInGUI(currentPlans);
+                    displayPlansInGUI(currentPlans, PlannerProtocol.isProvisional(msg), PlannerProtocol.isStale(msg));
                 } else if (content instanceof PaymentConfirmation) {
                     PaymentConfirmation confirmation = (PaymentConfirmation) content;
                     displayPaymentConfirmation(confirmation);
+                } else if (content instanceof String[]) {
+                    if (gui != null && msg.getConversationId() != null
+                            && msg.getConversationId().equals(currentSuggestionId)) {
+                        gui.showDestinationSuggestions((String[]) content,
+                                msg.getUserDefinedParameter(PlannerProtocol.NEAREST_TO));
+                    }
                 }
             } else if (msg.getPerformative() == ACLMessage.FAILURE) {
+                if (isStaleSearchReply(msg)) {
+                    return;
+                }
                 displayError(msg.getContent());
+            } else if (msg.getPerformative() == ACLMessage.REFUSE) {
+                if (isStaleSearchReply(msg)) {
+                    return;
+                }
+                retryBusySearch(msg);
             }
         } catch (UnreadableException e) {
             System.err.println("Error reading message: " + e.getMessage());
@@ -60,7 +100,46 @@ public class GUIUserAgent extends Agent {
         }
     }
 
-    private void displayPlansInGUI(TravelPlan[] plans) {
+    /**
+     * The planner shed the search. Send it again after the larger of its
+     * retry-after hint and an exponential backoff, jittered so refused users
+     * do not all come back at once.
+     */
+    private void retryBusySearch(ACLMessage refusal) {
+        String searchId = currentSearchId;
+        UserRequest request = currentRequest;
+        if (request == null || ++busyRetries > MAX_BUSY_RETRIES) {
+            displayError("The planner is busy. Please try again in a minute.");
+            return;
+        }
+
+        long backoff = Math.min(BUSY_BACKOFF_MAX_MS, BUSY_BACKOFF_BASE_MS << (busyRetries - 1));
+        long base = Math.max(PlannerProtocol.retryAfterMs(refusal, 0), backoff);
+        long delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+
+        if (gui != null) {
+            gui.updateResults(String.format("⏳ Planner busy, retrying in %.1fs (attempt %d of %d)...",
+                    delay / 1000.0, busyRetries, MAX_BUSY_RETRIES));
+            gui.updatePlanSelector(new String[0]);
+        }
+
+        addBehaviour(new WakerBehaviour(this, delay) {
+            @Override
+            protected void onWake() {
+                if (searchId.equals(currentSearchId)) {
+                    sendToPlanner(request, searchId);
+                }
+            }
+        });
+    }
+
+    private boolean isStaleSearchReply(ACLMessage msg) {
+        String conversationId = msg.getConversationId();
+        return conversationId != null && conversationId.startsWith(getLocalName() + "-search-")
+                && !conversationId.equals(currentSearchId);
+    }
+
+    private void displayPlansInGUI(TravelPlan[] plans, boolean provisional, boolean stale) {
         if (gui == null) return;
 
         if (plans == null || plans.length == 0) {
@@ -73,7 +152,15 @@ public class GUIUserAgent extends Agent {
         }
 
         StringBuilder results = new StringBuilder();
-        results.append("=== TOP TRAVEL PLANS ===\n\n");
+        if (provisional) {
+            results.append("=== PROVISIONAL TRAVEL PLANS ===\n");
+            results.append("⏳ Some prices are from earlier searches, refining with live data...\n\n");
+        } else if (stale) {
+            results.append("=== TOP TRAVEL PLANS ===\n");
+            results.append("⚠️ A supplier did not answer; some prices are from earlier searches and may have changed\n\n");
+        } else {
+            results.append("=== TOP TRAVEL PLANS ===\n\n");
+        }
 
         String[] planNames = new String[plans.length];
 
@@ -85,6 +172,13 @@ public class GUIUserAgent extends Agent {
             planNames[i] = String.format("Plan #%d - $%.2f", i + 1, plan.getTotalCost());
         }
 
+        if (provisional) {
+            // Prices may still change, so booking waits for the final plans
+            gui.updateResults(results.toString());
+            gui.updatePlanSelector(new String[0]);
+            return;
+        }
+
         results.append("\n✅ ").append(plans.length).append(" plans found!");
 
         gui.updateResults(results.toString());
@@ -111,20 +205,68 @@ public class GUIUserAgent extends Agent {
     }
 
     public void sendSearchRequest(String destination, String startDate, String endDate, double budget) {
-        try {
-            UserRequest request = new UserRequest(destination, startDate, endDate, budget);
+        UserRequest request = createSearchRequest(destination, startDate, endDate, budget);
+
+        String searchId = getLocalName() + "-search-" + (++searchCounter);
+        currentSearchId = searchId;
+        currentRequest = request;
+        busyRetries = 0;
 
+        if (sendToPlanner(request, searchId)) {
+            System.out.println("Search request sent: " + destination);
+        }
+    }
+
+    private boolean sendToPlanner(UserRequest request, String searchId) {
+        try {
             ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(getAID("planner"));
+            // Same user, same planner instance, so its caches stay warm
+            msg.addReceiver(plannerRouter.route(getName()));
+            msg.setConversationId(searchId);
             msg.setContentObject(request);
             send(msg);
-
-            System.out.println("Search request sent: " + destination);
+            return true;
         } catch (IOException e) {
             System.err.println("Error sending search request: " + e.getMessage());
             e.printStackTrace();
             displayError("Failed to send search request");
+            return false;
+        }
+    }
+
+    /**
+     * Ask for destinations matching what the user is typing; the answer
+     * arrives as an INFORM and replaces any earlier suggestions.
+     */
+    public void requestDestinationSuggestions(String typed) {
+        String suggestionId = getLocalName() + "-complete-" + (++suggestionCounter);
+        currentSuggestionId = suggestionId;
+
+        ACLMessage msg = new ACLMessage(ACLMessage.QUERY_REF);
+        msg.addReceiver(directory.pick(ServiceDirectory.DESTINATIONS));
+        msg.setProtocol(PlannerProtocol.AUTOCOMPLETE);
+        msg.setConversationId(suggestionId);
+        msg.setContent(typed);
+        send(msg);
+    }
+
+    /**
+     * "Paris, Rome, Tokyo" compares several destinations in one search.
+     */
+    private UserRequest createSearchRequest(String destination, String startDate, String endDate, double budget) {
+        List<String> destinations = new ArrayList<>();
+        for (String part : destination.split(",")) {
+            if (!part.trim().isEmpty()) {
+                destinations.add(part.trim());
+            }
+        }
+
+        if (destinations.size() > 1) {
+            return new MultiDestinationRequest(destinations, startDate, endDate, budget);
         }
+        UserRequest request = new UserRequest(destination, startDate, endDate, budget);
+        request.setProgressive(true);
+        return request;
     }
 
     public void sendBookingRequest(int planIndex, String paymentMethod, String cardHolderName,
@@ -145,7 +287,7 @@ public class GUIUserAgent extends Agent {
             public void action() {
                 try {
                     ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-                    msg.addReceiver(getAID("payment"));
+                    msg.addReceiver(directory.pick(ServiceDirectory.PAYMENT));
                     msg.setContentObject(paymentRequest);
                     send(msg);
                     System.out.println("Booking request sent for plan #" + (planIndex + 1));
@@ -2,27 +2,66 @@ package agents;
 
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.UnreadableException;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import inventory.AvailabilityIndex;
+import inventory.Inventory;
+import inventory.InventorySnapshot;
+import inventory.MappedInventory;
+import inventory.ReloadableAvailability;
+import inventory.ReloadableInventory;
+import inventory.Schemas;
+import inventory.ShardSpec;
+import inventory.StreamingInventoryLoader;
 import models.HotelOption;
+import models.MultiDestinationRequest;
+import models.OptionOrder;
 import models.UserRequest;
+import planner.FlexibleDateSearch;
+import planner.ParetoPlanSearch;
+import planner.PlannerProtocol;
+import planner.ServiceDirectory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 public class HotelAgent extends Agent {
+    private static final long ADVERTISE_CHECK_MS = 5000; // how often a shard checks for new destinations
+
+    // Per destination, cheapest first; replaced whole when the file changes
+    private ReloadableInventory<HotelOption> hotelDatabase;
 
-    private Map<String, List<HotelOption>> hotelDatabase;
+    // Destinations this agent holds, e.g. "1/3" as its start-up argument;
+    // the whole database without one
+    private ShardSpec shard = ShardSpec.WHOLE;
+    private Set<String> advertised; // null until registered
+
+    // Rooms booked per hotel and night; replaced whole when the file changes
+    private ReloadableAvailability availability;
 
     @Override
     protected void setup() {
         System.out.println("HotelAgent " + getLocalName() + " is ready.");
+        shard = ShardSpec.fromArguments(getArguments());
         initializeDatabase();
+        if (shard.isWhole()) {
+            ServiceDirectory.register(this, ServiceDirectory.HOTEL);
+        } else {
+            // A shard registers once it knows its destinations, and re-registers when they change
+            advertiseShard();
+            addBehaviour(new TickerBehaviour(this, ADVERTISE_CHECK_MS) {
+                @Override
+                protected void onTick() {
+                    advertiseShard();
+                }
+            });
+        }
 
         addBehaviour(new CyclicBehaviour() {
             @Override
@@ -31,7 +70,7 @@ public class HotelAgent extends Agent {
                 if (msg != null && msg.getPerformative() == ACLMessage.REQUEST) {
                     try {
                         UserRequest request = (UserRequest) msg.getContentObject();
-                        provideHotelOptions(request, msg.getSender());
+                        provideHotelOptions(request, msg);
                     } catch (UnreadableException e) {
                         e.printStackTrace();
                     }
@@ -43,65 +82,208 @@ public class HotelAgent extends Agent {
     }
 
     /**
-     * Load hotel data from JSON file instead of hardcoding.
+     * Load hotel data and room availability from JSON files instead of
+     * hardcoding, and reload each whenever its file changes.
      */
     private void initializeDatabase() {
-        ObjectMapper mapper = new ObjectMapper();
-
         // Path relative to project root
         File jsonFile = new File("src/database/hotel_data.json");
 
-        try {
-            hotelDatabase = mapper.readValue(
-                    jsonFile,
-                    new TypeReference<Map<String, List<HotelOption>>>() {}
-            );
-//            System.out.println("HotelAgent: Loaded hotel database successfully.");
-        } catch (Exception e) {
-            System.err.println("HotelAgent: ERROR loading JSON at: " + jsonFile.getAbsolutePath());
-            e.printStackTrace();
-            hotelDatabase = new HashMap<>();
-        }
+        StreamingInventoryLoader<HotelOption> loader =
+                new StreamingInventoryLoader<>("HotelAgent", HotelOption.class, Schemas.HOTEL, shard);
+        // A compiled snapshot next to the JSON is mapped instead when it is current
+        hotelDatabase = new ReloadableInventory<>("HotelAgent", jsonFile,
+                MappedInventory.preferSnapshot(Schemas.HOTEL, shard, loader::load));
+        hotelDatabase.startWatching();
+
+        availability = new ReloadableAvailability("HotelAgent",
+                new File("src/database/hotel_availability.json"), shard);
+        availability.startWatching();
     }
 
     /**
      * Select and send hotel options back to requester
      */
-    private void provideHotelOptions(UserRequest request, jade.core.AID sender) {
+    private void provideHotelOptions(UserRequest request, ACLMessage msg) {
+        // One snapshot per request, even if a reload lands meanwhile
+        InventorySnapshot<HotelOption> snapshot = hotelDatabase.current();
+        AvailabilityIndex rooms = availability.current();
+        if (request instanceof MultiDestinationRequest) {
+            provideBatchHotelOptions(snapshot, rooms, (MultiDestinationRequest) request, msg);
+            return;
+        }
+
         String destination = request.getDestination();
+        List<HotelOption> affordableOptions = selectHotelOptions(snapshot, rooms, destination, request);
+        sendReply(msg, affordableOptions.toArray(new HotelOption[0]), snapshot, rooms);
+        System.out.println("HotelAgent: Sent " + affordableOptions.size() +
+                " hotel options for " + destination);
+    }
+
+    /**
+     * One reply for a comparison search: options per destination, in the
+     * order of the request's destination list.
+     */
+    private void provideBatchHotelOptions(InventorySnapshot<HotelOption> snapshot, AvailabilityIndex rooms,
+                                          MultiDestinationRequest request, ACLMessage msg) {
+        List<String> destinations = request.getDestinations();
+        HotelOption[][] batch = new HotelOption[destinations.size()][];
+        int total = 0;
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = selectHotelOptions(snapshot, rooms, destinations.get(i), request).toArray(new HotelOption[0]);
+            total += batch[i].length;
+        }
+        sendReply(msg, batch, snapshot, rooms);
+        System.out.println("HotelAgent: Sent " + total + " hotel options for " +
+                destinations.size() + " destinations");
+    }
 
-        List<HotelOption> options = hotelDatabase.getOrDefault(
-                destination,
-                hotelDatabase.getOrDefault("Default", new ArrayList<>())
-        );
+    /**
+     * Hotels with a room for the requested dates whose whole stay fits the
+     * budget, trimmed to the planner's option limit. Rooms are checked
+     * before any trimming, so a booked-out hotel never takes the place of
+     * one that is free.
+     *
+     * The planner always sets a limit or the Pareto order; the 60% rule
+     * below only serves requesters that set neither.
+     */
+    private List<HotelOption> selectHotelOptions(InventorySnapshot<HotelOption> snapshot, AvailabilityIndex rooms,
+                                                 String destination, UserRequest request) {
+        Inventory<HotelOption> hotelIndex = snapshot.getIndex();
+        String key = snapshot.keyFor(destination);
+        if (request.hasOptionLimit()) {
+            return withRooms(hotelIndex.upTo(key, request.getBudget() / stayLength(request)),
+                    rooms, key, request, true);
+        }
 
-        // Budget rule: assume 60% of budget should go to hotel (3 nights)
+        // Legacy budget rule: assume 60% of budget should go to hotel for the whole stay
         double estimatedMaxHotelBudget = request.getBudget() * 0.6;
+        int nights = stayLength(request);
 
-        List<HotelOption> affordableOptions = new ArrayList<>();
-        for (HotelOption hotel : options) {
-            if (hotel.getCostPerNight() * 3 <= estimatedMaxHotelBudget) {
-                affordableOptions.add(hotel);
+        List<HotelOption> affordableOptions = withRooms(hotelIndex.upTo(key, estimatedMaxHotelBudget / nights),
+                rooms, key, request, false);
+
+        // If none are affordable, return all that have rooms
+        if (affordableOptions.isEmpty()) {
+            affordableOptions = withRooms(hotelIndex.all(key), rooms, key, request, false);
+        }
+        return affordableOptions;
+    }
+
+    /**
+     * The hotels with a room free on every night of the stay, trimmed to
+     * the planner's candidates if asked; all of them when the dates cannot
+     * be read. A flexible search checks each date pair of its window on its
+     * own: a hotel is kept if it is a candidate for at least one pair, and
+     * is marked with the pairs it has rooms for so the planner never offers
+     * it on dates it is full.
+     */
+    private List<HotelOption> withRooms(List<HotelOption> hotels, AvailabilityIndex rooms, String key,
+                                        UserRequest request, boolean trim) {
+        List<LocalDate[]> grid;
+        try {
+            grid = FlexibleDateSearch.dateGrid(request);
+        } catch (DateTimeParseException | NullPointerException e) {
+            // No dates to check; the planner reports bad dates itself
+            return trim ? selectCandidates(hotels, request) : hotels;
+        }
+
+        // Inventory lists may build a new record on every read; read each once
+        hotels = new ArrayList<>(hotels);
+        Map<HotelOption, BitSet> freeStays = new IdentityHashMap<>();
+        Set<HotelOption> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int cell = 0; cell < grid.size(); cell++) {
+            LocalDate[] stay = grid.get(cell);
+            if (stay == null) {
+                continue;
             }
+            List<HotelOption> available = new ArrayList<>(hotels.size());
+            for (HotelOption hotel : hotels) {
+                if (rooms.hasRooms(key, hotel.getName(), stay[0], stay[1], 1)) {
+                    available.add(hotel);
+                    freeStays.computeIfAbsent(hotel, h -> new BitSet()).set(cell);
+                }
+            }
+            kept.addAll(trim ? selectCandidates(available, request) : available);
         }
 
-        // If none are affordable, return all
-        if (affordableOptions.isEmpty()) {
-            affordableOptions = options;
+        boolean flexible = grid.size() > 1;
+        List<HotelOption> selected = new ArrayList<>(kept.size());
+        for (HotelOption hotel : hotels) {
+            if (kept.contains(hotel)) {
+                selected.add(flexible ? hotel.withFreeStays(freeStays.get(hotel)) : hotel);
+            }
         }
+        return selected;
+    }
 
-        HotelOption[] optionsArray = affordableOptions.toArray(new HotelOption[0]);
+    /**
+     * Hotels whose whole stay fits the budget and that have rooms, trimmed
+     * to what the planner can use: the cheapest N, or the price / stars
+     * frontier. May be empty, in which case no plan is possible.
+     */
+    private List<HotelOption> selectCandidates(List<HotelOption> feasible, UserRequest request) {
+        if (request.getOptionOrder() == OptionOrder.PARETO) {
+            return ParetoPlanSearch.hotelFront(feasible);
+        }
+        return feasible.subList(0, Math.min(request.getOptionLimit(), feasible.size()));
+    }
 
-        ACLMessage reply = new ACLMessage(ACLMessage.INFORM);
-        reply.addReceiver(sender);
+    private void sendReply(ACLMessage msg, Serializable content, InventorySnapshot<HotelOption> snapshot,
+                           AvailabilityIndex rooms) {
+        // Reply keeps the planner's conversation-id so it can match the session
+        ACLMessage reply = msg.createReply();
+        reply.setPerformative(ACLMessage.INFORM);
+        // New bookings invalidate cached plans just like new prices
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_VERSION,
+                snapshot.getVersion() + "." + rooms.getVersion());
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_LOADED_AT, String.valueOf(snapshot.getLoadedAt()));
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_LOAD_MS, String.valueOf(snapshot.getLoadMillis()));
 
         try {
-            reply.setContentObject(optionsArray);
+            reply.setContentObject(content);
             send(reply);
-            System.out.println("HotelAgent: Sent " + affordableOptions.size() +
-                    " hotel options for " + destination);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Nights for the budget rule; a flexible search may shorten the stay,
+     * so the shortest stay in its window is used.
+     */
+    private int stayLength(UserRequest request) {
+        try {
+            return Math.max(1, request.getNights() - 2 * request.getFlexDays());
+        } catch (IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Tell the DF which destinations this shard holds, again whenever a
+     * reload changes them, so planners can route to it directly.
+     */
+    private void advertiseShard() {
+        Set<String> held = new TreeSet<>(hotelDatabase.current().getIndex().destinations());
+        if (held.equals(advertised)) {
+            return;
+        }
+        Map<String, String> properties = ServiceDirectory.shardProperties(shard.toString(), held);
+        if (advertised == null) {
+            ServiceDirectory.register(this, ServiceDirectory.HOTEL, properties);
+        } else {
+            ServiceDirectory.modify(this, ServiceDirectory.HOTEL, properties);
+        }
+        advertised = held;
+        System.out.println("HotelAgent: Shard " + shard + " holds " + held.size() + " destinations");
+    }
+
+    @Override
+    protected void takeDown() {
+        hotelDatabase.stopWatching();
+        availability.stopWatching();
+        ServiceDirectory.deregister(this);
+        System.out.println("HotelAgent " + getLocalName() + " terminating.");
+    }
 }
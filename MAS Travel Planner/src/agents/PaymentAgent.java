@@ -10,6 +10,7 @@ import java.util.Random;
 import models.TravelPlan;
 import models.PaymentRequest;
 import models.PaymentConfirmation;
+import planner.ServiceDirectory;
 
 public class PaymentAgent extends Agent {
     private Random random = new Random();
@@ -17,6 +18,7 @@ public class PaymentAgent extends Agent {
     @Override
     protected void setup() {
         System.out.println("PaymentAgent " + getLocalName() + " is ready.");
+        ServiceDirectory.register(this, ServiceDirectory.PAYMENT);
 
         addBehaviour(new CyclicBehaviour() {
             @Override
@@ -241,4 +243,10 @@ public class PaymentAgent extends Agent {
     private String generateConfirmationCode() {
         return "CONF-" + (1000 + random.nextInt(9000));
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void takeDown() {
+        ServiceDirectory.deregister(this);
+        System.out.println("PaymentAgent " + getLocalName() + " terminating.");
+    }
+}
@@ -1,37 +1,175 @@
 package agents;
 
+import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.*;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import jade.lang.acl.UnreadableException;
 import models.HotelOption;
+import models.MultiDestinationRequest;
+import models.OptionOrder;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import models.UserRequest;
 import models.TransportOption;
 import models.TravelPlan;
+import models.RankingMode;
+import models.SearchStrategy;
+import planner.BestFirstPlanSearch;
+import planner.FlexibleDateSearch;
+import planner.LastKnownOptions;
+import planner.MultiDestinationSearch;
+import planner.PlanCache;
+import planner.PlannerProtocol;
+import planner.ParetoPlanSearch;
+import planner.PlanningSession;
+import planner.ServiceDirectory;
+import planner.ShardRouter;
+import planner.PriceSortedOptions;
+import planner.SupplierQuery;
+import planner.TopKPlanSearch;
+import util.CircuitBreaker;
+import util.HashedWheelTimer;
+import util.LatencyWindow;
+import util.WheelTimerBehaviour;
 
 public class PlannerAgent extends Agent {
-    private UserRequest currentRequest;
-    private List<TransportOption> transportOptions;
-    private List<HotelOption> hotelOptions;
-    private boolean transportReceived = false;
-    private boolean hotelReceived = false;
-    private jade.core.AID userAID;
-    private static final int TIMEOUT_MS = 10000; // 10 second timeout
-    private boolean timeoutHandled = false;
+    private static final int TIMEOUT_MS = 10000; // upper bound, and the default until latencies are known
+    private static final int MIN_TIMEOUT_MS = 1000;
+    private static final int TIMEOUT_P99_MULTIPLIER = 3;
+    private static final int TIMER_TICK_MS = 100;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private static final int CACHE_MAX_ENTRIES = 1000;
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000; // 5 minutes
+    private static final double CACHE_BUDGET_BUCKET = 50.0;  // budgets within $50 share an entry
+    private static final long CACHE_MAINTENANCE_MS = 60 * 1000;
+    private static final int LAST_KNOWN_MAX_ENTRIES = 1000;
+    private static final long LAST_KNOWN_TTL_MS = 30 * 60 * 1000; // older options are not worth showing
+    private static final int LATENCY_WINDOW = 256;           // samples kept per supplier
+    private static final int HEDGE_MIN_SAMPLES = 20;         // below this the p95 is noise
+    private static final long HEDGE_DEFAULT_DELAY_MS = 1000;
+    private static final int BREAKER_FAILURES = 3;           // timeouts in a row before failing fast
+    private static final long BREAKER_OPEN_MS = 30 * 1000;
+    private static final int BREAKER_PROBES = 2;             // successful probes before closing again
+
+    // Admission control, e.g. -Dplanner.maxSessions=50. New searches are
+    // refused above the session limit, and from the time the mailbox passes
+    // the high watermark until it drains below the low one.
+    private static final int MAX_SESSIONS = Integer.getInteger("planner.maxSessions", 200);
+    private static final int MAILBOX_HIGH_WATERMARK = Integer.getInteger("planner.mailboxHigh", 500);
+    private static final int MAILBOX_LOW_WATERMARK = Integer.getInteger("planner.mailboxLow", 250);
+    private static final long RETRY_AFTER_MS = 2000;
+
+    // Flexible-date and comparison searches run on this many threads instead
+    // of the agent thread, e.g. -Dplanner.searchThreads=4
+    private static final int SEARCH_THREADS = Integer.getInteger("planner.searchThreads", 2);
+
+    // In-flight searches keyed by session id
+    private final Map<String, PlanningSession> sessions = new HashMap<>();
+    private long sessionCounter = 0;
+
+    // Outstanding supplier REQUESTs, by the conversation-id sent to the
+    // supplier and by search key so identical queries can be shared
+    private final Map<String, SupplierQuery> queriesByConversation = new HashMap<>();
+    private final Map<String, SupplierQuery> queriesByKey = new HashMap<>();
+    private long queryCounter = 0;
+    private long queriesSent = 0;
+    private long queriesCoalesced = 0;
+
+    // Last live supplier replies, used for provisional plans: transport per
+    // destination, hotels per destination and dates, both per budget bucket
+    // and option limit since suppliers trim their replies to those
+    private final LastKnownOptions<TransportOption> lastKnownTransport =
+            new LastKnownOptions<>(LAST_KNOWN_MAX_ENTRIES, LAST_KNOWN_TTL_MS);
+    private final LastKnownOptions<HotelOption> lastKnownHotels =
+            new LastKnownOptions<>(LAST_KNOWN_MAX_ENTRIES, LAST_KNOWN_TTL_MS);
+
+    // Finished plan lists for repeated searches, and the supplier inventory
+    // versions they were built from
+    private final PlanCache planCache = new PlanCache(CACHE_MAX_ENTRIES, CACHE_TTL_MS, CACHE_BUDGET_BUCKET);
+    private final Map<String, String> inventoryVersions = new HashMap<>();
+    private long inventoryChanges = 0;
+
+    // Supplier replicas as registered with the DF, and which of them hold
+    // which destinations when the inventory is sharded
+    private final ServiceDirectory directory = new ServiceDirectory();
+    private final ShardRouter shardRouter = new ShardRouter(directory, new File("src" + File.separator + "database"));
+
+    // Reply latency per supplier type; its p95 sets when a query is hedged
+    // and its p99 how long one may take
+    private final Map<String, LatencyWindow> supplierLatency = new HashMap<>();
+    private final Map<String, CircuitBreaker> supplierBreakers = new HashMap<>();
+    private long hedgesSent = 0;
+    private long hedgeWins = 0;
+
+    private boolean sheddingMailbox = false;
+    private long searchesRefused = 0;
+
+    // One shared timer for all session timeouts instead of a WakerBehaviour each
+    private final HashedWheelTimer timer = new HashedWheelTimer(TIMER_TICK_MS, TIMER_WHEEL_SIZE);
+
+    // Searches too large for the agent thread; each hands its result back
+    // as a Runnable through the O2A queue
+    private ExecutorService searchPool;
 
     @Override
     protected void setup() {
         System.out.println("PlannerAgent " + getLocalName() + " is ready.");
 
+        // Join the planner pool; user agents route to us once the DF tells them
+        ServiceDirectory.register(this, ServiceDirectory.PLANNER);
+        directory.watch(this, ServiceDirectory.TRANSPORT, ServiceDirectory.HOTEL);
+        MessageTemplate notFromDF = ServiceDirectory.notFromDF(this);
+
+        addBehaviour(new WheelTimerBehaviour(this, timer));
+
+        searchPool = Executors.newFixedThreadPool(SEARCH_THREADS, task -> {
+            Thread thread = new Thread(task, getLocalName() + "-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        setEnabledO2ACommunication(true, 0);
+        Behaviour searchResults = new CyclicBehaviour() {
+            @Override
+            public void action() {
+                Object finished = getO2AObject();
+                if (finished instanceof Runnable) {
+                    ((Runnable) finished).run();
+                } else {
+                    block();
+                }
+            }
+        };
+        addBehaviour(searchResults);
+        setO2AManager(searchResults); // putO2AObject() wakes this behaviour
+
+        addBehaviour(new TickerBehaviour(this, CACHE_MAINTENANCE_MS) {
+            @Override
+            protected void onTick() {
+                planCache.purgeExpired();
+                lastKnownTransport.purgeExpired();
+                lastKnownHotels.purgeExpired();
+                System.out.println("PlannerAgent: Plan cache " + planCache.stats());
+                System.out.println("PlannerAgent: Hedging " + hedgeStats());
+                System.out.println("PlannerAgent: Suppliers " + supplierStats());
+                System.out.println("PlannerAgent: Admission sessions=" + sessions.size() + "/" + MAX_SESSIONS +
+                        " mailbox=" + getCurQueueSize() + " refused=" + searchesRefused);
+            }
+        });
+
         addBehaviour(new CyclicBehaviour() {
             @Override
             public void action() {
                 try {
-                    ACLMessage msg = receive();
+                    ACLMessage msg = receive(notFromDF);
                     if (msg != null) {
                         handleMessage(msg);
                     } else {
@@ -40,170 +178,716 @@ public class PlannerAgent extends Agent {
                 } catch (Exception e) {
                     System.err.println("ERROR in PlannerAgent: " + e.getMessage());
                     e.printStackTrace();
-                    sendErrorToUser("Planning error: " + e.getMessage());
                 }
             }
         });
     }
 
     private void handleMessage(ACLMessage msg) {
+        PlanningSession session = null;
         try {
             if (msg.getPerformative() == ACLMessage.REQUEST) {
                 Object content = msg.getContentObject();
                 if (content instanceof UserRequest) {
-                    userAID = msg.getSender();
-                    currentRequest = (UserRequest) content;
-                    System.out.println("PlannerAgent: Received request for " + currentRequest.getDestination());
-
-                    // Reset flags
-                    transportReceived = false;
-                    hotelReceived = false;
-                    transportOptions = null;
-                    hotelOptions = null;
-                    timeoutHandled = false;
-
-                    requestTransportOptions();
-                    requestHotelOptions();
-
-                    // Set timeout for responses
-                    addBehaviour(new WakerBehaviour(this, TIMEOUT_MS) {
-                        @Override
-                        protected void onWake() {
-                            if (!timeoutHandled && (!transportReceived || !hotelReceived)) {
-                                handleTimeout();
-                            }
-                        }
-                    });
+                    if (!admit(msg)) {
+                        return;
+                    }
+                    session = openSession(msg, (UserRequest) content);
+                    System.out.println("PlannerAgent: Received request for " +
+                            session.getRequest().getDestination() + " [" + session.getSessionId() + "]");
+
+                    try {
+                        session.getRequest().getNights();
+                    } catch (IllegalArgumentException e) {
+                        sendErrorToUser(session, e.getMessage());
+                        return;
+                    }
+                    if (session.getRequest().getMaxPlans() > UserRequest.MAX_PLANS_LIMIT) {
+                        sendErrorToUser(session, "At most " + UserRequest.MAX_PLANS_LIMIT +
+                                " plans can be requested");
+                        return;
+                    }
+                    int flexDays = session.getRequest().getFlexDays();
+                    if (flexDays < 0 || flexDays > UserRequest.MAX_FLEX_DAYS) {
+                        sendErrorToUser(session, "Flexible dates must be within 0 to " +
+                                UserRequest.MAX_FLEX_DAYS + " days");
+                        return;
+                    }
+
+                    if (answerFromCache(session)) {
+                        return;
+                    }
+
+                    // Ask for the whole budget bucket so the result can be cached,
+                    // and only for the options that can reach the top plans
+                    UserRequest request = session.getRequest();
+                    session.setSupplierRequest(request.withBudget(planCache.bucketCeiling(request.getBudget()))
+                            .withOptionLimit(optionLimit(request), optionOrder(request)));
+
+                    // An open circuit may answer or fail the session right away
+                    requestOptions(session, ServiceDirectory.TRANSPORT);
+                    if (!session.isCompleted()) {
+                        requestOptions(session, ServiceDirectory.HOTEL);
+                    }
+                    if (!session.isCompleted()) {
+                        scheduleTimeout(session);
+                    }
                 }
             } else if (msg.getPerformative() == ACLMessage.INFORM) {
-                Object content = msg.getContentObject();
-                if (content instanceof TransportOption[]) {
-                    transportOptions = Arrays.asList((TransportOption[]) content);
-                    transportReceived = true;
-                    System.out.println("PlannerAgent: Received " + transportOptions.size() + " transport options");
-                } else if (content instanceof HotelOption[]) {
-                    hotelOptions = Arrays.asList((HotelOption[]) content);
-                    hotelReceived = true;
-                    System.out.println("PlannerAgent: Received " + hotelOptions.size() + " hotel options");
+                checkInventoryVersion(msg);
+                SupplierQuery query = queriesByConversation.remove(msg.getConversationId());
+                if (query == null) {
+                    System.out.println("PlannerAgent: Ignoring late or unknown reply from " +
+                            msg.getSender().getLocalName());
+                    return;
+                }
+                queriesByKey.remove(query.getKey());
+                query.cancelExpiry();
+                query.cancelHedge();
+
+                Object content;
+                try {
+                    content = msg.getContentObject();
+                } catch (UnreadableException e) {
+                    // The sessions waiting on this query would otherwise sit out their timeouts
+                    System.err.println("ERROR: Unable to read " + query.getSupplier() + " reply - " + e.getMessage());
+                    // Settles the breaker's probe if this was it; the expiry is already cancelled
+                    breaker(query.getSupplier()).recordFailure(System.currentTimeMillis());
+                    for (PlanningSession waiter : query.getWaiters()) {
+                        sendErrorToUser(waiter, "Failed to process " + query.getSupplier() + " options");
+                    }
+                    return;
                 }
+                recordReply(query, msg.getSender());
 
-                if (transportReceived && hotelReceived) {
-                    timeoutHandled = true; // Mark as handled to prevent timeout message
-                    generatePlans();
+                for (PlanningSession waiter : query.getWaiters()) {
+                    if (waiter.isCompleted()) {
+                        continue;
+                    }
+                    session = waiter;
+                    deliverOptions(waiter, content, query.getBatchPositions());
                 }
             }
         } catch (UnreadableException e) {
             System.err.println("ERROR: Unable to read message content - " + e.getMessage());
-            sendErrorToUser("Failed to process request");
+            if (session != null) {
+                sendErrorToUser(session, "Failed to process request");
+            } else {
+                sendErrorToSender(msg, "Failed to process request");
+            }
         } catch (Exception e) {
             System.err.println("ERROR in PlannerAgent message handling: " + e.getMessage());
             e.printStackTrace();
-            sendErrorToUser("Planning error occurred");
+            if (session != null) {
+                sendErrorToUser(session, "Planning error occurred");
+            }
+        }
+    }
+
+    /**
+     * Refuse a new search when the planner is overloaded. Replies from
+     * suppliers are never shed, since they finish work already admitted.
+     */
+    private boolean admit(ACLMessage msg) {
+        int queued = getCurQueueSize();
+        if (queued >= MAILBOX_HIGH_WATERMARK) {
+            sheddingMailbox = true;
+        } else if (queued <= MAILBOX_LOW_WATERMARK) {
+            sheddingMailbox = false;
+        }
+
+        String reason;
+        if (sessions.size() >= MAX_SESSIONS) {
+            reason = sessions.size() + " searches in progress";
+        } else if (sheddingMailbox) {
+            reason = queued + " messages queued";
+        } else {
+            return true;
         }
+
+        searchesRefused++;
+        System.err.println("PlannerAgent: Busy (" + reason + "), refusing search from " +
+                msg.getSender().getLocalName());
+        ACLMessage reply = msg.createReply();
+        reply.setPerformative(ACLMessage.REFUSE);
+        reply.addUserDefinedParameter(PlannerProtocol.RETRY_AFTER, String.valueOf(RETRY_AFTER_MS));
+        reply.setContent("Planner busy, please retry later");
+        send(reply);
+        return false;
     }
 
-    private void handleTimeout() {
-        timeoutHandled = true;
+    private PlanningSession openSession(ACLMessage msg, UserRequest request) {
+        String sessionId = getLocalName() + "-" + (++sessionCounter) + "-" + System.currentTimeMillis();
+        PlanningSession session = new PlanningSession(sessionId, msg, request);
+        sessions.put(sessionId, session);
+        return session;
+    }
+
+    private boolean answerFromCache(PlanningSession session) {
+        UserRequest request = session.getRequest();
+        if (request.getFlexDays() > 0) {
+            return false; // the cache only holds fixed-date results
+        }
+        TravelPlan[] cached = planCache.lookup(request, planLimit(request));
+        if (cached == null) {
+            return false;
+        }
+
+        System.out.println("PlannerAgent: Plan cache hit [" + session.getSessionId() + "]");
+        if (cached.length == 0) {
+            sendErrorToUser(session, "No plans available within budget of $" + request.getBudget());
+        } else {
+            sendPlansToUser(session, cached, PlannerProtocol.STATUS_FINAL);
+            closeSession(session);
+        }
+        return true;
+    }
+
+    private void checkInventoryVersion(ACLMessage msg) {
+        String version = msg.getUserDefinedParameter(PlannerProtocol.INVENTORY_VERSION);
+        if (version == null) {
+            return;
+        }
+        String previous = inventoryVersions.put(msg.getSender().getName(), version);
+        if (previous != null && !previous.equals(version)) {
+            System.out.println("PlannerAgent: Inventory of " + msg.getSender().getLocalName() +
+                    " changed to version " + version + " (loaded at " +
+                    msg.getUserDefinedParameter(PlannerProtocol.INVENTORY_LOADED_AT) + " in " +
+                    msg.getUserDefinedParameter(PlannerProtocol.INVENTORY_LOAD_MS) + " ms), clearing plan cache");
+            planCache.invalidateAll();
+            inventoryChanges++;
+        }
+    }
+
+    private void deliverOptions(PlanningSession session, Object content, int[] batchPositions) {
+        if (content instanceof TransportOption[]) {
+            session.setTransportOptions(Arrays.asList((TransportOption[]) content));
+            lastKnownTransport.put(transportKey(session.getSupplierRequest()), session.getTransportOptions());
+            System.out.println("PlannerAgent: Received " + session.getTransportOptions().size() +
+                    " transport options [" + session.getSessionId() + "]");
+        } else if (content instanceof HotelOption[]) {
+            session.setHotelOptions(Arrays.asList((HotelOption[]) content));
+            lastKnownHotels.put(stayKey(session.getSupplierRequest()), session.getHotelOptions());
+            System.out.println("PlannerAgent: Received " + session.getHotelOptions().size() +
+                    " hotel options [" + session.getSessionId() + "]");
+        } else if (content instanceof TransportOption[][]) {
+            if (batchPositions != null) {
+                session.mergeTransportPart(batchPositions, (TransportOption[][]) content);
+            } else {
+                session.setTransportBatch((TransportOption[][]) content);
+            }
+            System.out.println("PlannerAgent: Received batched transport options [" + session.getSessionId() + "]");
+        } else if (content instanceof HotelOption[][]) {
+            if (batchPositions != null) {
+                session.mergeHotelPart(batchPositions, (HotelOption[][]) content);
+            } else {
+                session.setHotelBatch((HotelOption[][]) content);
+            }
+            System.out.println("PlannerAgent: Received batched hotel options [" + session.getSessionId() + "]");
+        }
+
+        if (session.isReady()) {
+            generatePlans(session);
+        } else if (session.getRequest().isProgressive() && !session.isComparison() && !session.isProvisionalSent()) {
+            sendProvisionalPlans(session);
+        }
+    }
+
+    // A supplier's reply only holds the options within the budget bucket and
+    // option limit it was asked for, so last-known options are kept per both
+    private static String transportKey(UserRequest supplierRequest) {
+        return supplierRequest.getDestination() + "|" + supplierRequest.getBudget() + "|" +
+                supplierRequest.getOptionLimit() + "|" + supplierRequest.getOptionOrder();
+    }
+
+    // Hotel options depend on the dates as well, since hotels may be booked out
+    private static String stayKey(UserRequest supplierRequest) {
+        return transportKey(supplierRequest) + "|" + supplierRequest.getStartDate() + "|" +
+                supplierRequest.getEndDate() + "|" + supplierRequest.getFlexDays();
+    }
+
+    private void closeSession(PlanningSession session) {
+        session.markCompleted();
+        sessions.remove(session.getSessionId());
+    }
+
+    /**
+     * The request's own timeout if it set one, otherwise long enough for
+     * the slower supplier.
+     */
+    private long timeoutFor(PlanningSession session) {
+        if (session.getRequest().getTimeoutMs() > 0) {
+            return session.getRequest().getTimeoutMs();
+        }
+        return Math.max(supplierTimeout(ServiceDirectory.TRANSPORT), supplierTimeout(ServiceDirectory.HOTEL));
+    }
+
+    /**
+     * A multiple of the supplier's observed p99, within
+     * [MIN_TIMEOUT_MS, TIMEOUT_MS]; TIMEOUT_MS until enough replies are seen.
+     */
+    private long supplierTimeout(String supplier) {
+        LatencyWindow latency = supplierLatency.get(supplier);
+        if (latency == null || latency.size() < HEDGE_MIN_SAMPLES) {
+            return TIMEOUT_MS;
+        }
+        long adaptive = latency.percentile(99) * TIMEOUT_P99_MULTIPLIER;
+        return Math.min(TIMEOUT_MS, Math.max(MIN_TIMEOUT_MS, adaptive));
+    }
+
+    private LatencyWindow latency(String supplier) {
+        return supplierLatency.computeIfAbsent(supplier, s -> new LatencyWindow(LATENCY_WINDOW));
+    }
+
+    private CircuitBreaker breaker(String supplier) {
+        return supplierBreakers.computeIfAbsent(supplier,
+                s -> new CircuitBreaker(BREAKER_FAILURES, BREAKER_OPEN_MS, BREAKER_PROBES));
+    }
+
+    private void scheduleTimeout(PlanningSession session) {
+        session.setTimeout(timer.schedule(() -> {
+            if (!session.isCompleted() && !session.isReady()) {
+                handleTimeout(session);
+            }
+        }, timeoutFor(session)));
+    }
+
+    private void handleTimeout(PlanningSession session) {
+        if (session.getRequest().isProgressive() && completeFromLastKnown(session)) {
+            System.err.println("PlannerAgent: Supplier timeout, finishing with last-known data [" +
+                    session.getSessionId() + "]");
+            generatePlans(session);
+            return;
+        }
+
         String error = "Timeout: ";
-        if (!transportReceived) error += "Transport data unavailable. ";
-        if (!hotelReceived) error += "Hotel data unavailable.";
+        if (!session.isTransportReceived()) error += "Transport data unavailable. ";
+        if (!session.isHotelReceived()) error += "Hotel data unavailable.";
 
-        System.err.println("ERROR: " + error);
-        sendErrorToUser(error);
+        System.err.println("ERROR: " + error + " [" + session.getSessionId() + "]");
+        sendErrorToUser(session, error);
     }
 
-    private void requestTransportOptions() {
+    /**
+     * Ask the supplier shard holding the destination for options. A
+     * comparison over destinations on different shards becomes one query
+     * per shard, merged as the parts arrive.
+     */
+    private void requestOptions(PlanningSession session, String supplier) {
+        UserRequest supplierRequest = session.getSupplierRequest();
+        if (!session.isComparison()) {
+            requestOptions(session, supplier, supplierRequest, supplierRequest.getDestination(), null);
+            return;
+        }
+
+        MultiDestinationRequest comparison = (MultiDestinationRequest) supplierRequest;
+        List<String> destinations = comparison.getDestinations();
+        List<int[]> parts = shardRouter.partition(supplier, destinations);
+        if (parts.size() == 1) {
+            requestOptions(session, supplier, supplierRequest, destinations.get(0), null);
+            return;
+        }
+
+        if (ServiceDirectory.TRANSPORT.equals(supplier)) {
+            session.expectTransportParts(parts.size());
+        } else {
+            session.expectHotelParts(parts.size());
+        }
+        for (int[] positions : parts) {
+            List<String> subset = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                subset.add(destinations.get(position));
+            }
+            requestOptions(session, supplier, comparison.withDestinations(subset), subset.get(0), positions);
+            if (session.isCompleted()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send one supplier query, or join an identical query that is already
+     * in flight so one ACL exchange serves every waiting session.
+     */
+    private void requestOptions(PlanningSession session, String supplier, UserRequest supplierRequest,
+                                String routingKey, int[] batchPositions) {
+        // Parts of a split comparison are only shared with the same part of the same comparison
+        String key = supplier + "|" + planCache.keyFor(supplierRequest) + "|" + supplierRequest.getFlexDays() +
+                "|" + supplierRequest.getOptionLimit() + "|" + supplierRequest.getOptionOrder() +
+                (batchPositions == null ? "" : "|" + Arrays.toString(batchPositions));
+
+        SupplierQuery pending = queriesByKey.get(key);
+        if (pending != null) {
+            pending.addWaiter(session);
+            queriesCoalesced++;
+            System.out.println("PlannerAgent: Joined in-flight " + supplier + " query [" +
+                    session.getSessionId() + "], coalesced " + queriesCoalesced + "/" +
+                    (queriesSent + queriesCoalesced));
+            return;
+        }
+
+        // Build the message first: a half-open breaker lets one probe
+        // through, and a probe that is never sent would never be settled
+        String conversationId = getLocalName() + "-q" + (++queryCounter) + "-" + System.currentTimeMillis();
+        AID target = shardRouter.pick(supplier, routingKey);
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
         try {
-            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(getAID("transport"));
-            msg.setContentObject(currentRequest);
-            send(msg);
+            msg.addReceiver(target);
+            msg.setConversationId(conversationId);
+            msg.setReplyWith(conversationId + "-" + supplier);
+            msg.setContentObject(supplierRequest);
         } catch (IOException e) {
-            System.err.println("ERROR: Failed to request transport options - " + e.getMessage());
-            sendErrorToUser("Failed to fetch transport options");
+            System.err.println("ERROR: Failed to request " + supplier + " options - " + e.getMessage());
+            sendErrorToUser(session, "Failed to fetch " + supplier + " options");
+            return;
+        }
+
+        if (!breaker(supplier).allowRequest(System.currentTimeMillis())) {
+            supplierUnavailable(session, supplier);
+            return;
+        }
+        send(msg);
+
+        SupplierQuery query = new SupplierQuery(conversationId, supplier, key, routingKey);
+        query.setBatchPositions(batchPositions);
+        query.setSent(msg, target, System.currentTimeMillis());
+        query.addWaiter(session);
+        queriesByConversation.put(conversationId, query);
+        queriesByKey.put(key, query);
+        queriesSent++;
+
+        // Forget the query if the supplier never answers; waiting sessions
+        // still time out on their own deadlines. A miss counts against the
+        // supplier's breaker and, as a latency sample, raises its timeout.
+        // The deadline is the supplier's own, never a session's, so a client
+        // asking for a tiny timeout cannot trip the breaker for everyone.
+        long queryTimeout = supplierTimeout(supplier);
+        query.setExpiry(timer.schedule(() -> {
+            queriesByConversation.remove(conversationId);
+            queriesByKey.remove(key);
+            query.cancelHedge();
+            latency(supplier).record(queryTimeout);
+            breaker(supplier).recordFailure(System.currentTimeMillis());
+            System.err.println("PlannerAgent: " + supplier + " query timed out, breaker " + breaker(supplier));
+        }, queryTimeout));
+
+        scheduleHedge(query, queryTimeout);
+    }
+
+    /**
+     * The supplier's circuit is open: finish from its last-known options
+     * when there are some, otherwise fail fast instead of waiting out a
+     * timeout.
+     */
+    private void supplierUnavailable(PlanningSession session, String supplier) {
+        UserRequest supplierRequest = session.getSupplierRequest();
+        boolean transport = ServiceDirectory.TRANSPORT.equals(supplier);
+        List<TransportOption> transports = session.isComparison() ? null :
+                lastKnownTransport.get(transportKey(supplierRequest));
+        List<HotelOption> hotels = session.isComparison() ? null : lastKnownHotels.get(stayKey(supplierRequest));
+
+        if (transport ? transports != null : hotels != null) {
+            System.out.println("PlannerAgent: " + supplier + " circuit open, using last-known options [" +
+                    session.getSessionId() + "]");
+            if (transport) {
+                session.setTransportOptions(transports);
+            } else {
+                session.setHotelOptions(hotels);
+            }
+            session.markUsedLastKnown();
+            if (session.isReady()) {
+                generatePlans(session);
+            }
+            return;
+        }
+
+        System.err.println("PlannerAgent: " + supplier + " circuit open, failing fast [" + session.getSessionId() + "]");
+        sendErrorToUser(session, (transport ? "Transport" : "Hotel") +
+                " service is temporarily unavailable. Please try again shortly.");
+    }
+
+    /**
+     * With more than one replica of the shard, send a copy of the query to
+     * another one if the first has not answered by the supplier's p95
+     * latency.
+     */
+    private void scheduleHedge(SupplierQuery query, long timeoutMs) {
+        if (shardRouter.owners(query.getSupplier(), query.getRoutingKey()).size() < 2) {
+            return;
+        }
+        long delay = hedgeDelay(query.getSupplier());
+        if (delay >= timeoutMs) {
+            return;
+        }
+        query.setHedge(timer.schedule(() -> sendHedge(query), delay));
+    }
+
+    private void sendHedge(SupplierQuery query) {
+        if (queriesByConversation.get(query.getConversationId()) != query) {
+            return; // answered or expired meanwhile
+        }
+        AID other = shardRouter.pickOther(query.getSupplier(), query.getRoutingKey(), query.getTarget());
+        if (other == null) {
+            return;
+        }
+        ACLMessage copy = (ACLMessage) query.getRequest().clone();
+        copy.clearAllReceiver();
+        copy.addReceiver(other);
+        send(copy);
+        query.setHedgeSent(other, System.currentTimeMillis());
+        hedgesSent++;
+        System.out.println("PlannerAgent: Hedged " + query.getSupplier() + " query to " +
+                other.getLocalName() + " [" + query.getConversationId() + "]");
+    }
+
+    private long hedgeDelay(String supplier) {
+        LatencyWindow latency = supplierLatency.get(supplier);
+        if (latency == null || latency.size() < HEDGE_MIN_SAMPLES) {
+            return HEDGE_DEFAULT_DELAY_MS;
+        }
+        return Math.max(TIMER_TICK_MS, latency.percentile(95));
+    }
+
+    /**
+     * Latency sample for the replica that answered first. The slower copy
+     * of a hedged query is never observed, so the window leans fast.
+     */
+    private void recordReply(SupplierQuery query, AID replier) {
+        latency(query.getSupplier()).record(System.currentTimeMillis() - query.sentAtFor(replier));
+        breaker(query.getSupplier()).recordSuccess();
+        if (query.isHedgeWinner(replier)) {
+            hedgeWins++;
+        }
+    }
+
+    private String supplierStats() {
+        StringBuilder stats = new StringBuilder();
+        for (String supplier : new String[]{ServiceDirectory.TRANSPORT, ServiceDirectory.HOTEL}) {
+            stats.append(supplier).append("[timeout=").append(supplierTimeout(supplier))
+                    .append("ms breaker=").append(breaker(supplier)).append("] ");
+        }
+        return stats.toString().trim();
+    }
+
+    private String hedgeStats() {
+        double rate = queriesSent == 0 ? 0 : (double) hedgesSent / queriesSent;
+        StringBuilder stats = new StringBuilder(String.format("rate=%.1f%% sent=%d wins=%d",
+                rate * 100, hedgesSent, hedgeWins));
+        for (Map.Entry<String, LatencyWindow> entry : supplierLatency.entrySet()) {
+            stats.append(' ').append(entry.getKey()).append(".p95=")
+                    .append(entry.getValue().percentile(95)).append("ms");
         }
+        return stats.toString();
     }
 
-    private void requestHotelOptions() {
+    private void generatePlans(PlanningSession session) {
+        System.out.println("PlannerAgent: Generating travel plans [" + session.getSessionId() + "]...");
+        if (session.getRequest().getFlexDays() > 0 || session.isComparison()) {
+            long changesAtStart = inventoryChanges;
+            searchInBackground(() -> searchSession(session),
+                    plans -> finishPlans(session, plans, changesAtStart), e -> failPlans(session, e));
+            return;
+        }
+
+        TravelPlan[] bucketPlans;
         try {
-            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(getAID("hotel"));
-            msg.setContentObject(currentRequest);
-            send(msg);
-        } catch (IOException e) {
-            System.err.println("ERROR: Failed to request hotel options - " + e.getMessage());
-            sendErrorToUser("Failed to fetch hotel options");
+            bucketPlans = searchSession(session);
+        } catch (Exception e) {
+            failPlans(session, e);
+            return;
+        }
+        finishPlans(session, bucketPlans, inventoryChanges);
+    }
+
+    private TravelPlan[] searchSession(PlanningSession session) {
+        UserRequest currentRequest = session.getRequest();
+        UserRequest searchRequest = currentRequest.getFlexDays() > 0 ? currentRequest : session.getSupplierRequest();
+        if (session.isComparison()) {
+            return MultiDestinationSearch.search((MultiDestinationRequest) searchRequest,
+                    session.getTransportBatch(), session.getHotelBatch(), planLimit(currentRequest), this::buildPlans);
         }
+        return buildPlans(searchRequest, session.getTransportOptions(), session.getHotelOptions());
     }
 
-    private void generatePlans() {
+    /**
+     * Cache and send the plans of a finished search. A background search
+     * started before an inventory change is not cached, since the cache was
+     * cleared for newer options meanwhile.
+     */
+    private void finishPlans(PlanningSession session, TravelPlan[] bucketPlans, long changesAtStart) {
+        UserRequest currentRequest = session.getRequest();
         try {
-            if (transportOptions == null || transportOptions.isEmpty()) {
-                throw new IllegalStateException("No transport options available");
-            }
-            if (hotelOptions == null || hotelOptions.isEmpty()) {
-                throw new IllegalStateException("No hotel options available");
-            }
-
-            System.out.println("PlannerAgent: Generating travel plans...");
-            List<TravelPlan> allPlans = new ArrayList<>();
-
-            for (TransportOption transport : transportOptions) {
-                for (HotelOption hotel : hotelOptions) {
-                    int nights = calculateNights(currentRequest.getStartDate(), currentRequest.getEndDate());
-                    double hotelTotalCost = hotel.getCostPerNight() * nights;
-                    double totalCost = transport.getCost() + hotelTotalCost;
-
-                    if (totalCost <= currentRequest.getBudget()) {
-                        TravelPlan plan = new TravelPlan(
-                                currentRequest.getDestination(),
-                                currentRequest.getStartDate(),
-                                currentRequest.getEndDate(),
-                                transport.getType(),
-                                transport.getCost(),
-                                hotel.getName(),
-                                hotelTotalCost
-                        );
-                        allPlans.add(plan);
-                    }
-                }
+            int limit = planLimit(currentRequest);
+            if (currentRequest.getFlexDays() == 0 && !session.isUsedLastKnown() &&
+                    changesAtStart == inventoryChanges) {
+                planCache.put(currentRequest, bucketPlans, limit);
             }
+            TravelPlan[] topPlans = PlanCache.withinBudget(bucketPlans, currentRequest.getBudget(), limit);
 
-            if (allPlans.isEmpty()) {
-                sendErrorToUser("No plans available within budget of $" + currentRequest.getBudget());
+            if (topPlans.length == 0) {
+                sendErrorToUser(session, "No plans available within budget of $" + currentRequest.getBudget());
                 return;
             }
 
-            allPlans.sort(Comparator.comparingDouble(TravelPlan::getTotalCost));
+            sendPlansToUser(session, topPlans,
+                    session.isUsedLastKnown() ? PlannerProtocol.STATUS_STALE : PlannerProtocol.STATUS_FINAL);
 
-            int planCount = Math.min(3, allPlans.size());
-            TravelPlan[] topPlans = new TravelPlan[planCount];
-            for (int i = 0; i < planCount; i++) {
-                topPlans[i] = allPlans.get(i);
-                topPlans[i].setRank(i + 1);
+        } catch (Exception e) {
+            failPlans(session, e);
+        } finally {
+            closeSession(session);
+        }
+    }
+
+    private void failPlans(PlanningSession session, Exception e) {
+        System.err.println("ERROR generating plans: " + e.getMessage());
+        e.printStackTrace();
+        sendErrorToUser(session, "Failed to generate travel plans");
+    }
+
+    /**
+     * Run a search on the search pool and hand its plans, or its failure,
+     * back to the agent thread.
+     */
+    private void searchInBackground(Supplier<TravelPlan[]> search, Consumer<TravelPlan[]> onPlans,
+                                    Consumer<Exception> onError) {
+        searchPool.execute(() -> {
+            Runnable result;
+            try {
+                TravelPlan[] plans = search.get();
+                result = () -> onPlans.accept(plans);
+            } catch (Exception e) {
+                result = () -> onError.accept(e);
+            }
+            try {
+                putO2AObject(result, false);
+            } catch (InterruptedException e) {
+                // agent is shutting down
             }
+        });
+    }
+
+    /**
+     * One supplier has answered; if the other one answered an earlier search
+     * for the same destination and budget bucket, send plans built from
+     * that data right away.
+     * The session stays open and the final plans follow when the live reply
+     * arrives.
+     */
+    private void sendProvisionalPlans(PlanningSession session) {
+        UserRequest currentRequest = session.getRequest();
+        List<TransportOption> transports = session.isTransportReceived()
+                ? session.getTransportOptions() : lastKnownTransport.get(transportKey(session.getSupplierRequest()));
+        List<HotelOption> hotels = session.isHotelReceived()
+                ? session.getHotelOptions() : lastKnownHotels.get(stayKey(session.getSupplierRequest()));
+        if (transports == null || hotels == null) {
+            return;
+        }
 
-            sendPlansToUser(topPlans);
+        if (currentRequest.getFlexDays() > 0) {
+            // The date window is searched in the background like the final plans
+            session.markProvisionalSent();
+            searchInBackground(() -> buildPlans(currentRequest, transports, hotels),
+                    plans -> sendProvisional(session, plans),
+                    e -> System.err.println("ERROR generating provisional plans: " + e.getMessage()));
+            return;
+        }
 
+        try {
+            TravelPlan[] plans = buildPlans(currentRequest, transports, hotels);
+            sendProvisional(session, plans);
+            if (plans.length > 0) {
+                session.markProvisionalSent();
+            }
         } catch (Exception e) {
-            System.err.println("ERROR generating plans: " + e.getMessage());
-            e.printStackTrace();
-            sendErrorToUser("Failed to generate travel plans");
-        } finally {
-            transportReceived = false;
-            hotelReceived = false;
+            // Provisional plans are best effort; the final result still follows
+            System.err.println("ERROR generating provisional plans: " + e.getMessage());
+        }
+    }
+
+    private void sendProvisional(PlanningSession session, TravelPlan[] plans) {
+        if (plans.length == 0 || session.isCompleted()) {
+            return; // the final plans may have overtaken a background search
+        }
+        System.out.println("PlannerAgent: Sending " + plans.length + " provisional plans [" +
+                session.getSessionId() + "]");
+        sendPlansToUser(session, plans, PlannerProtocol.STATUS_PROVISIONAL);
+    }
+
+    private boolean completeFromLastKnown(PlanningSession session) {
+        if (session.isComparison()) {
+            return false; // last-known data is kept per single destination only
+        }
+        if (!session.isTransportReceived()) {
+            List<TransportOption> transports = lastKnownTransport.get(transportKey(session.getSupplierRequest()));
+            if (transports == null) return false;
+            session.setTransportOptions(transports);
+            session.markUsedLastKnown();
         }
+        if (!session.isHotelReceived()) {
+            List<HotelOption> hotels = lastKnownHotels.get(stayKey(session.getSupplierRequest()));
+            if (hotels == null) return false;
+            session.setHotelOptions(hotels);
+            session.markUsedLastKnown();
+        }
+        return true;
+    }
+
+    private TravelPlan[] buildPlans(UserRequest request, List<TransportOption> transports, List<HotelOption> hotels) {
+        if (transports == null) {
+            throw new IllegalStateException("No transport options available");
+        }
+        if (hotels == null) {
+            throw new IllegalStateException("No hotel options available");
+        }
+        if (transports.isEmpty() || hotels.isEmpty()) {
+            return new TravelPlan[0]; // suppliers found nothing that fits the budget
+        }
+
+        if (request.getFlexDays() > 0) {
+            PriceSortedOptions options = new PriceSortedOptions(transports, hotels);
+            return FlexibleDateSearch.search(request, options, planLimit(request));
+        }
+        return searchPlans(request, transports, hotels, request.getNights(), planLimit(request));
+    }
+
+    private int planLimit(UserRequest request) {
+        if (request.getRankingMode() == RankingMode.PARETO) {
+            return ParetoPlanSearch.MAX_FRONTIER_PLANS;
+        }
+        // Requests above the limit are refused on arrival; the cap guards other callers
+        return request.getMaxPlans() > 0 ? Math.min(request.getMaxPlans(), UserRequest.MAX_PLANS_LIMIT)
+                : UserRequest.DEFAULT_MAX_PLANS;
+    }
+
+    /**
+     * Options per supplier that can still reach the top plans. The k
+     * cheapest plans use only the k cheapest transports and hotels, for any
+     * stay length; a Pareto search needs each supplier's own frontier.
+     */
+    private int optionLimit(UserRequest request) {
+        return request.getRankingMode() == RankingMode.PARETO ? 0 : planLimit(request);
+    }
+
+    private OptionOrder optionOrder(UserRequest request) {
+        return request.getRankingMode() == RankingMode.PARETO ? OptionOrder.PARETO : OptionOrder.PRICE;
     }
 
-    private int calculateNights(String start, String end) {
-        // Simplified calculation - in production, use proper date parsing
-        return 3;
+    private TravelPlan[] searchPlans(UserRequest request, List<TransportOption> transports,
+                                     List<HotelOption> hotels, int nights, int limit) {
+        if (request.getRankingMode() == RankingMode.PARETO) {
+            return ParetoPlanSearch.search(request, transports, hotels, nights, limit);
+        }
+        if (request.getSearchStrategy() == SearchStrategy.EXHAUSTIVE) {
+            return TopKPlanSearch.search(request, transports, hotels, nights, limit);
+        }
+        return BestFirstPlanSearch.search(request, transports, hotels, nights, limit);
     }
 
-    private void sendPlansToUser(TravelPlan[] plans) {
+    private void sendPlansToUser(PlanningSession session, TravelPlan[] plans, String status) {
         try {
-            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
-            msg.addReceiver(userAID);
+            ACLMessage msg = session.createUserReply(ACLMessage.INFORM);
+            msg.addUserDefinedParameter(PlannerProtocol.PLAN_STATUS, status);
             msg.setContentObject(plans);
             send(msg);
         } catch (IOException e) {
@@ -211,12 +895,30 @@ public class PlannerAgent extends Agent {
         }
     }
 
-    private void sendErrorToUser(String errorMessage) {
-        if (userAID != null) {
-            ACLMessage msg = new ACLMessage(ACLMessage.FAILURE);
-            msg.addReceiver(userAID);
-            msg.setContent(errorMessage);
-            send(msg);
+    private void sendErrorToUser(PlanningSession session, String errorMessage) {
+        if (session.isCompleted()) {
+            return;
+        }
+        ACLMessage msg = session.createUserReply(ACLMessage.FAILURE);
+        msg.setContent(errorMessage);
+        send(msg);
+        closeSession(session);
+    }
+
+    private void sendErrorToSender(ACLMessage request, String errorMessage) {
+        ACLMessage msg = request.createReply();
+        msg.setPerformative(ACLMessage.FAILURE);
+        msg.setContent(errorMessage);
+        send(msg);
+    }
+
+    @Override
+    protected void takeDown() {
+        // Leaving the pool moves only this instance's users to other planners
+        ServiceDirectory.deregister(this);
+        if (searchPool != null) {
+            searchPool.shutdownNow();
         }
+        System.out.println("PlannerAgent " + getLocalName() + " terminating.");
     }
 }
@@ -2,28 +2,58 @@ package agents;
 
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.UnreadableException;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import inventory.Inventory;
+import inventory.InventorySnapshot;
+import inventory.MappedInventory;
+import inventory.ReloadableInventory;
+import inventory.Schemas;
+import inventory.ShardSpec;
+import inventory.StreamingInventoryLoader;
+import models.MultiDestinationRequest;
+import models.OptionOrder;
 import models.TransportOption;
 import models.UserRequest;
+import planner.ParetoPlanSearch;
+import planner.PlannerProtocol;
+import planner.ServiceDirectory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.*;
 
 public class TransportAgent extends Agent {
+    private static final long ADVERTISE_CHECK_MS = 5000; // how often a shard checks for new destinations
+
+    // Per destination, cheapest first; replaced whole when the file changes
+    private ReloadableInventory<TransportOption> transportDatabase;
 
-    private Map<String, List<TransportOption>> transportDatabase;
+    // Destinations this agent holds, e.g. "1/3" as its start-up argument;
+    // the whole database without one
+    private ShardSpec shard = ShardSpec.WHOLE;
+    private Set<String> advertised; // null until registered
 
     @Override
     protected void setup() {
         System.out.println("TransportAgent " + getLocalName() + " is ready.");
-
+        shard = ShardSpec.fromArguments(getArguments());
         loadDatabaseFromJson();
+        if (shard.isWhole()) {
+            ServiceDirectory.register(this, ServiceDirectory.TRANSPORT);
+        } else {
+            // A shard registers once it knows its destinations, and re-registers when they change
+            advertiseShard();
+            addBehaviour(new TickerBehaviour(this, ADVERTISE_CHECK_MS) {
+                @Override
+                protected void onTick() {
+                    advertiseShard();
+                }
+            });
+        }
 
         addBehaviour(new CyclicBehaviour() {
             @Override
@@ -33,7 +63,7 @@ public class TransportAgent extends Agent {
                 if (msg != null && msg.getPerformative() == ACLMessage.REQUEST) {
                     try {
                         UserRequest request = (UserRequest) msg.getContentObject();
-                        provideTransportOptions(request, msg.getSender());
+                        provideTransportOptions(request, msg);
                     } catch (UnreadableException e) {
                         e.printStackTrace();
                     }
@@ -45,47 +75,114 @@ public class TransportAgent extends Agent {
     }
 
     private void loadDatabaseFromJson() {
-        ObjectMapper mapper = new ObjectMapper();
-
         // Build a relative path to the project directory
         String basePath = System.getProperty("user.dir");  // project root folder
         String fullPath = basePath + File.separator + "src" + File.separator +
                 "database" + File.separator + "transport_data.json";
 
-        try {
-            transportDatabase = mapper.readValue(
-                    new File(fullPath),
-                    new TypeReference<Map<String, List<TransportOption>>>() {}
-            );
+        StreamingInventoryLoader<TransportOption> loader =
+                new StreamingInventoryLoader<>("TransportAgent", TransportOption.class, Schemas.TRANSPORT, shard);
+        // A compiled snapshot next to the JSON is mapped instead when it is current
+        transportDatabase = new ReloadableInventory<>("TransportAgent", new File(fullPath),
+                MappedInventory.preferSnapshot(Schemas.TRANSPORT, shard, loader::load));
+        transportDatabase.startWatching();
+    }
 
-//            System.out.println("TransportAgent: Loaded transport data from " + fullPath);
 
-        } catch (IOException e) {
-            System.err.println("TransportAgent: ERROR loading JSON at: " + fullPath);
-            transportDatabase = new HashMap<>();
-            e.printStackTrace();
+    /**
+     * Options the budget can pay for at all; a fare above the whole budget
+     * can never be part of a plan. The result is trimmed to the planner's
+     * option limit, the cheapest N or the cost / time / comfort frontier,
+     * and may be empty.
+     *
+     * The planner always sets a limit or the Pareto order; requesters that
+     * set neither get every affordable option, or all when none is.
+     */
+    private List<TransportOption> selectTransportOptions(InventorySnapshot<TransportOption> snapshot,
+                                                         String destination, UserRequest request) {
+        Inventory<TransportOption> transportIndex = snapshot.getIndex();
+        String key = snapshot.keyFor(destination);
+        List<TransportOption> options = transportIndex.upTo(key, request.getBudget());
+        if (request.getOptionOrder() == OptionOrder.PARETO) {
+            return ParetoPlanSearch.transportFront(options);
         }
+        if (request.getOptionLimit() > 0) {
+            return options.subList(0, Math.min(request.getOptionLimit(), options.size()));
+        }
+        return options.isEmpty() ? transportIndex.all(key) : options;
     }
 
+    private void provideTransportOptions(UserRequest request, ACLMessage msg) {
+        // One snapshot per request, even if a reload lands meanwhile
+        InventorySnapshot<TransportOption> snapshot = transportDatabase.current();
+        if (request instanceof MultiDestinationRequest) {
+            provideBatchTransportOptions(snapshot, (MultiDestinationRequest) request, msg);
+            return;
+        }
 
-    private void provideTransportOptions(UserRequest request, jade.core.AID sender) {
         String destination = request.getDestination();
-
-        List<TransportOption> options = transportDatabase.getOrDefault(
-                destination,
-                transportDatabase.getOrDefault("Default", new ArrayList<>())
-        );
-
+        List<TransportOption> options = selectTransportOptions(snapshot, destination, request);
         TransportOption[] optionsArray = options.toArray(new TransportOption[0]);
+        sendReply(msg, optionsArray, snapshot);
+        System.out.println("TransportAgent: Sent " + options.size() + " options for " + destination);
+    }
+
+    /**
+     * One reply for a comparison search: options per destination, in the
+     * order of the request's destination list.
+     */
+    private void provideBatchTransportOptions(InventorySnapshot<TransportOption> snapshot,
+                                              MultiDestinationRequest request, ACLMessage msg) {
+        List<String> destinations = request.getDestinations();
+        TransportOption[][] batch = new TransportOption[destinations.size()][];
+        int total = 0;
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = selectTransportOptions(snapshot, destinations.get(i), request)
+                    .toArray(new TransportOption[0]);
+            total += batch[i].length;
+        }
+        sendReply(msg, batch, snapshot);
+        System.out.println("TransportAgent: Sent " + total + " options for " + destinations.size() + " destinations");
+    }
 
-        ACLMessage reply = new ACLMessage(ACLMessage.INFORM);
-        reply.addReceiver(sender);
+    private void sendReply(ACLMessage msg, Serializable content, InventorySnapshot<TransportOption> snapshot) {
+        // Reply keeps the planner's conversation-id so it can match the session
+        ACLMessage reply = msg.createReply();
+        reply.setPerformative(ACLMessage.INFORM);
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_VERSION, String.valueOf(snapshot.getVersion()));
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_LOADED_AT, String.valueOf(snapshot.getLoadedAt()));
+        reply.addUserDefinedParameter(PlannerProtocol.INVENTORY_LOAD_MS, String.valueOf(snapshot.getLoadMillis()));
         try {
-            reply.setContentObject(optionsArray);
+            reply.setContentObject(content);
             send(reply);
-            System.out.println("TransportAgent: Sent " + options.size() + " options for " + destination);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Tell the DF which destinations this shard holds, again whenever a
+     * reload changes them, so planners can route to it directly.
+     */
+    private void advertiseShard() {
+        Set<String> held = new TreeSet<>(transportDatabase.current().getIndex().destinations());
+        if (held.equals(advertised)) {
+            return;
+        }
+        Map<String, String> properties = ServiceDirectory.shardProperties(shard.toString(), held);
+        if (advertised == null) {
+            ServiceDirectory.register(this, ServiceDirectory.TRANSPORT, properties);
+        } else {
+            ServiceDirectory.modify(this, ServiceDirectory.TRANSPORT, properties);
+        }
+        advertised = held;
+        System.out.println("TransportAgent: Shard " + shard + " holds " + held.size() + " destinations");
+    }
+
+    @Override
+    protected void takeDown() {
+        transportDatabase.stopWatching();
+        ServiceDirectory.deregister(this);
+        System.out.println("TransportAgent " + getLocalName() + " terminating.");
+    }
 }
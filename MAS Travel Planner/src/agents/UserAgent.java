@@ -3,6 +3,7 @@ package agents;
 import jade.core.Agent;
 import jade.core.behaviours.*;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 import jade.lang.acl.UnreadableException;
 import java.io.IOException;
 import java.util.Scanner;
@@ -11,16 +12,22 @@ import models.TravelPlan;
 import models.PaymentConfirmation;
 import models.UserRequest;
 import models.PaymentRequest;
+import planner.PlannerRouter;
+import planner.ServiceDirectory;
 
 
 public class UserAgent extends Agent {
     private TravelPlan[] currentPlans;
     private Scanner scanner;
+    private final ServiceDirectory directory = new ServiceDirectory();
+    private final PlannerRouter plannerRouter = new PlannerRouter(directory);
 
     @Override
     protected void setup() {
         System.out.println("UserAgent " + getLocalName() + " is ready.");
         scanner = new Scanner(System.in);
+        directory.watch(this, ServiceDirectory.PLANNER, ServiceDirectory.PAYMENT);
+        MessageTemplate notFromDF = ServiceDirectory.notFromDF(this);
 
         addBehaviour(new OneShotBehaviour() {
             @Override
@@ -38,12 +45,15 @@ public class UserAgent extends Agent {
             @Override
             public void action() {
                 try {
-                    ACLMessage msg = receive();
+                    ACLMessage msg = receive(notFromDF);
                     if (msg != null && msg.getPerformative() == ACLMessage.INFORM) {
                         handleIncomingMessage(msg);
                     } else if (msg != null && msg.getPerformative() == ACLMessage.FAILURE) {
                         System.err.println("ERROR: " + msg.getContent());
                         askToContinue();
+                    } else if (msg != null && msg.getPerformative() == ACLMessage.REFUSE) {
+                        System.err.println("Planner is busy, please try again in a few seconds.");
+                        askToContinue();
                     } else {
                         block();
                     }
@@ -163,7 +173,7 @@ public class UserAgent extends Agent {
     private void sendRequestToPlanner(UserRequest request) {
         try {
             ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(getAID("planner"));
+            msg.addReceiver(plannerRouter.route(getName()));
             msg.setContentObject(request);
             send(msg);
             System.out.println("\nRequest sent to Planner Agent...\n");
@@ -281,7 +291,7 @@ public class UserAgent extends Agent {
 
             if (confirm.equals("yes")) {
                 ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-                msg.addReceiver(getAID("payment"));
+                msg.addReceiver(directory.pick(ServiceDirectory.PAYMENT));
                 msg.setContentObject(paymentRequest);
                 send(msg);
                 System.out.println("\n⏳ Processing payment...");
@@ -2,6 +2,8 @@ package gui;
 
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
 import java.text.SimpleDateFormat;
@@ -21,6 +23,12 @@ public class TravelPlannerGUI extends JFrame {
     private JComboBox<String> planSelector;
     private JPanel mainPanel;
 
+    // Destination autocomplete
+    private static final int SUGGESTION_DELAY_MS = 150;
+    private JPopupMenu suggestionPopup;
+    private Timer suggestionTimer;
+    private boolean applyingSuggestion;
+
     // Colors
     private static final Color PRIMARY_COLOR = new Color(41, 128, 185);
     private static final Color SECONDARY_COLOR = new Color(52, 152, 219);
@@ -115,6 +123,7 @@ public class TravelPlannerGUI extends JFrame {
 
         // Destination
         panel.add(createFieldPanel("Destination:", destinationField = new JTextField()));
+        installDestinationAutocomplete();
         panel.add(Box.createVerticalStrut(15));
 
         // Start Date
@@ -164,6 +173,62 @@ public class TravelPlannerGUI extends JFrame {
         return panel;
     }
 
+    /**
+     * Suggest destinations while the user types. Keystrokes are debounced so
+     * only a pause in typing sends a query; for "Paris, Ro" only the part
+     * after the last comma is completed.
+     */
+    private void installDestinationAutocomplete() {
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false);
+
+        suggestionTimer = new Timer(SUGGESTION_DELAY_MS, e -> {
+            String typed = lastDestination(destinationField.getText());
+            if (userAgent != null && !typed.isEmpty()) {
+                userAgent.requestDestinationSuggestions(typed);
+            } else {
+                suggestionPopup.setVisible(false);
+            }
+        });
+        suggestionTimer.setRepeats(false);
+
+        destinationField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { destinationEdited(); }
+            public void removeUpdate(DocumentEvent e) { destinationEdited(); }
+            public void changedUpdate(DocumentEvent e) { }
+        });
+
+        destinationField.addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    suggestionPopup.setVisible(false);
+                }
+            }
+        });
+    }
+
+    private void destinationEdited() {
+        if (!applyingSuggestion) {
+            suggestionTimer.restart();
+        }
+    }
+
+    private static String lastDestination(String text) {
+        return text.substring(text.lastIndexOf(',') + 1).trim();
+    }
+
+    private void applySuggestion(String destination) {
+        String text = destinationField.getText();
+        int comma = text.lastIndexOf(',');
+        String head = comma < 0 ? "" : text.substring(0, comma + 1) + " ";
+
+        applyingSuggestion = true;
+        destinationField.setText(head + destination);
+        applyingSuggestion = false;
+        suggestionPopup.setVisible(false);
+        destinationField.requestFocusInWindow();
+    }
+
     private JPanel createFieldPanel(String labelText, JTextField field) {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -484,4 +549,31 @@ public class TravelPlannerGUI extends JFrame {
             bookButton.setEnabled(plans.length > 0);
         });
     }
+
+    // Method called by agent with destinations matching what is being typed;
+    // nearestTo is set when they are the destinations closest to that place instead
+    public void showDestinationSuggestions(String[] destinations, String nearestTo) {
+        SwingUtilities.invokeLater(() -> {
+            suggestionPopup.setVisible(false);
+            suggestionPopup.removeAll();
+            String typed = lastDestination(destinationField.getText());
+            // Nothing to offer once the field already holds the only match
+            if (destinations.length == 0 || !destinationField.isFocusOwner()
+                    || (destinations.length == 1 && destinations[0].equalsIgnoreCase(typed))) {
+                return;
+            }
+            if (nearestTo != null) {
+                JMenuItem header = new JMenuItem("📍 No trips to " + nearestTo + " yet. Nearby:");
+                header.setEnabled(false);
+                suggestionPopup.add(header);
+            }
+            for (String destination : destinations) {
+                JMenuItem item = new JMenuItem(destination);
+                item.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+                item.addActionListener(e -> applySuggestion(destination));
+                suggestionPopup.add(item);
+            }
+            suggestionPopup.show(destinationField, 0, destinationField.getHeight());
+        });
+    }
 }
@@ -0,0 +1,90 @@
+package inventory;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Inventory stored as columns, with the rows of each destination
+ * contiguous and cheapest first. Subclasses say where a row's price and
+ * fields live; queries binary-search the price column and return views that
+ * build a record only when an element is read.
+ */
+abstract class AbstractColumnInventory<T> implements Inventory<T> {
+    private final Map<String, int[]> destinations; // name -> {firstRow, rowCount}
+    private final int rows;
+
+    AbstractColumnInventory(Map<String, int[]> destinations, int rows) {
+        this.destinations = destinations;
+        this.rows = rows;
+    }
+
+    abstract double price(int row);
+
+    abstract T materialize(String destination, int row);
+
+    @Override
+    public boolean contains(String destination) {
+        return destinations.containsKey(destination);
+    }
+
+    @Override
+    public Set<String> destinations() {
+        return Collections.unmodifiableSet(destinations.keySet());
+    }
+
+    @Override
+    public int size() { return rows; }
+
+    @Override
+    public List<T> all(String destination) {
+        int[] range = destinations.get(destination);
+        return range == null ? Collections.emptyList() : new Rows(destination, range[0], range[1]);
+    }
+
+    @Override
+    public List<T> upTo(String destination, double maxPrice) {
+        int[] range = destinations.get(destination);
+        if (range == null) {
+            return Collections.emptyList();
+        }
+        int low = range[0];
+        int high = range[0] + range[1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (price(mid) <= maxPrice) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return new Rows(destination, range[0], low - range[0]);
+    }
+
+    // Rows [first, first + length) of one destination, built on access
+    private final class Rows extends AbstractList<T> implements RandomAccess {
+        private final String destination;
+        private final int first;
+        private final int length;
+
+        Rows(String destination, int first, int length) {
+            this.destination = destination;
+            this.first = first;
+            this.length = length;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+            }
+            return materialize(destination, first + index);
+        }
+
+        @Override
+        public int size() { return length; }
+    }
+}
@@ -0,0 +1,153 @@
+package inventory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Room calendars of the hotels, by destination and hotel name.
+ *
+ * Read from an availability file next to the hotel database:
+ * <pre>
+ * {"Paris": {"Paris Comfort Inn": {"rooms": 20,
+ *     "bookings": [{"from": "2025-12-20", "to": "2026-01-02", "rooms": 18}]}}}
+ * </pre>
+ * A booking holds its rooms for the nights [from, to). Hotels the file does
+ * not list have no calendar and are treated as always available.
+ *
+ * Immutable once loaded; a changed file is loaded into a new index.
+ */
+public class AvailabilityIndex {
+
+    // JSON binding of one hotel's entry
+    public static class HotelRooms {
+        public int rooms;
+        public List<Booking> bookings = new ArrayList<>();
+    }
+
+    public static class Booking {
+        public String from;
+        public String to;
+        public int rooms = 1;
+    }
+
+    private final Map<String, Map<String, RoomCalendar>> calendars;
+    private final long version;
+
+    private AvailabilityIndex(Map<String, Map<String, RoomCalendar>> calendars, long version) {
+        this.calendars = calendars;
+        this.version = version;
+    }
+
+    public static AvailabilityIndex empty() {
+        return new AvailabilityIndex(Collections.emptyMap(), 0);
+    }
+
+    /**
+     * Changes whenever a different file is loaded; 0 for no file.
+     */
+    public long getVersion() { return version; }
+
+    public int hotelCount() {
+        int count = 0;
+        for (Map<String, RoomCalendar> hotels : calendars.values()) {
+            count += hotels.size();
+        }
+        return count;
+    }
+
+    /**
+     * Whether the hotel has the rooms free on every night in [from, to).
+     */
+    public boolean hasRooms(String destination, String hotel, LocalDate from, LocalDate to, int rooms) {
+        Map<String, RoomCalendar> hotels = calendars.get(destination);
+        RoomCalendar calendar = hotels == null ? null : hotels.get(hotel);
+        return calendar == null || calendar.hasRooms(from, to, rooms);
+    }
+
+    /**
+     * Read the file, keeping the destinations the filter accepts, e.g. a
+     * shard's own. A missing file gives an empty index.
+     */
+    public static AvailabilityIndex load(File file, Predicate<String> include) throws IOException {
+        if (!file.isFile()) {
+            return empty();
+        }
+        ObjectReader reader = new ObjectMapper().readerFor(HotelRooms.class);
+        Map<String, Map<String, RoomCalendar>> calendars = new HashMap<>();
+
+        try (JsonParser parser = reader.getFactory().createParser(file)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String destination = parser.getCurrentName();
+                expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+                if (!include.test(destination)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Map<String, RoomCalendar> hotels = new HashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hotel = parser.getCurrentName();
+                    expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+                    hotels.put(hotel, calendar(destination, hotel, reader.readValue(parser)));
+                }
+                calendars.put(destination, hotels);
+            }
+        }
+        return new AvailabilityIndex(calendars, file.lastModified());
+    }
+
+    // Calendar spanning the hotel's bookings, with each booking reserved
+    private static RoomCalendar calendar(String destination, String hotel, HotelRooms entry) throws IOException {
+        List<LocalDate[]> stays = new ArrayList<>(entry.bookings.size());
+        List<Integer> rooms = new ArrayList<>(entry.bookings.size());
+        LocalDate first = null;
+        LocalDate last = null;
+        for (Booking booking : entry.bookings) {
+            LocalDate from;
+            LocalDate to;
+            try {
+                from = LocalDate.parse(booking.from);
+                to = LocalDate.parse(booking.to);
+            } catch (DateTimeParseException | NullPointerException e) {
+                throw new IOException("Invalid booking dates for " + hotel + " in " + destination, e);
+            }
+            if (!to.isAfter(from)) {
+                continue;
+            }
+            stays.add(new LocalDate[]{from, to});
+            rooms.add(booking.rooms);
+            first = first == null || from.isBefore(first) ? from : first;
+            last = last == null || to.isAfter(last) ? to : last;
+        }
+
+        if (first == null) {
+            return new RoomCalendar(entry.rooms, LocalDate.ofEpochDay(0), 0);
+        }
+        RoomCalendar calendar = new RoomCalendar(entry.rooms, first,
+                (int) (last.toEpochDay() - first.toEpochDay()));
+        for (int i = 0; i < stays.size(); i++) {
+            calendar.reserve(stays.get(i)[0], stays.get(i)[1], rooms.get(i));
+        }
+        return calendar;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " +
+                    parser.getCurrentLocation());
+        }
+    }
+}
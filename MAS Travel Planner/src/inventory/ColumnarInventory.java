@@ -0,0 +1,183 @@
+package inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap inventory as a struct of arrays: one primitive array per numeric
+ * column, and names and destinations as int ids into a table of interned
+ * strings. There is no per-row object; a HotelOption or TransportOption is
+ * built only when a result list element is read, and budget scans walk a
+ * contiguous double[].
+ */
+public class ColumnarInventory<T> extends AbstractColumnInventory<T> {
+    private final RecordSchema<T> schema;
+    private final double[][] doubleColumns;
+    private final int[][] intColumns;
+    private final int[][] stringColumns;
+    private final String[] strings;
+
+    private ColumnarInventory(RecordSchema<T> schema, Map<String, int[]> destinations, int rows,
+                              double[][] doubleColumns, int[][] intColumns, int[][] stringColumns,
+                              String[] strings) {
+        super(destinations, rows);
+        this.schema = schema;
+        this.doubleColumns = doubleColumns;
+        this.intColumns = intColumns;
+        this.stringColumns = stringColumns;
+        this.strings = strings;
+    }
+
+    @Override
+    double price(int row) {
+        return doubleColumns[0][row];
+    }
+
+    @Override
+    T materialize(String destination, int row) {
+        double[] doubles = new double[doubleColumns.length];
+        int[] ints = new int[intColumns.length];
+        String[] names = new String[stringColumns.length];
+        for (int c = 0; c < doubles.length; c++) doubles[c] = doubleColumns[c][row];
+        for (int c = 0; c < ints.length; c++) ints[c] = intColumns[c][row];
+        for (int c = 0; c < names.length; c++) names[c] = strings[stringColumns[c][row]];
+        return schema.read(destination, doubles, ints, names);
+    }
+
+    /**
+     * Splits records into columns as they arrive, so each record can be
+     * dropped right away. build() groups rows by destination, orders each
+     * group by price and trims the columns to size.
+     */
+    public static class Builder<T> {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final RecordSchema<T> schema;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> destinationIds = new HashMap<>();
+        private final List<String> destinationNames = new ArrayList<>();
+
+        private double[][] doubleColumns;
+        private int[][] intColumns;
+        private int[][] stringColumns;
+        private int[] destinationColumn;
+        private int rows;
+
+        private final double[] doubles;
+        private final int[] ints;
+        private final String[] names;
+
+        public Builder(RecordSchema<T> schema) {
+            this.schema = schema;
+            doubleColumns = new double[schema.doubleColumns()][INITIAL_CAPACITY];
+            intColumns = new int[schema.intColumns()][INITIAL_CAPACITY];
+            stringColumns = new int[schema.stringColumns()][INITIAL_CAPACITY];
+            destinationColumn = new int[INITIAL_CAPACITY];
+            doubles = new double[schema.doubleColumns()];
+            ints = new int[schema.intColumns()];
+            names = new String[schema.stringColumns()];
+        }
+
+        public Builder<T> add(String destination, T record) {
+            if (rows == destinationColumn.length) {
+                grow(rows + (rows >> 1));
+            }
+            schema.write(record, doubles, ints, names);
+            for (int c = 0; c < doubles.length; c++) doubleColumns[c][rows] = doubles[c];
+            for (int c = 0; c < ints.length; c++) intColumns[c][rows] = ints[c];
+            for (int c = 0; c < names.length; c++) stringColumns[c][rows] = intern(names[c]);
+            Integer destinationId = destinationIds.get(destination);
+            if (destinationId == null) {
+                destinationId = destinationNames.size();
+                destinationIds.put(destination, destinationId);
+                destinationNames.add(strings.get(intern(destination)));
+            }
+            destinationColumn[rows++] = destinationId;
+            return this;
+        }
+
+        public int size() { return rows; }
+
+        public ColumnarInventory<T> build() {
+            int[] order = order();
+
+            double[][] sortedDoubles = new double[doubleColumns.length][];
+            for (int c = 0; c < doubleColumns.length; c++) {
+                sortedDoubles[c] = new double[rows];
+                for (int i = 0; i < rows; i++) sortedDoubles[c][i] = doubleColumns[c][order[i]];
+                doubleColumns[c] = null;
+            }
+            int[][] sortedInts = gather(intColumns, order);
+            int[][] sortedStrings = gather(stringColumns, order);
+
+            Map<String, int[]> ranges = new HashMap<>();
+            for (int i = 0; i < rows; ) {
+                int destinationId = destinationColumn[order[i]];
+                int first = i;
+                while (i < rows && destinationColumn[order[i]] == destinationId) i++;
+                ranges.put(destinationNames.get(destinationId), new int[]{first, i - first});
+            }
+
+            return new ColumnarInventory<>(schema, ranges, rows, sortedDoubles, sortedInts, sortedStrings,
+                    strings.toArray(new String[0]));
+        }
+
+        /**
+         * Rows grouped by destination (counting sort, stable), then each
+         * group ordered by price with PriceOrder.
+         */
+        private int[] order() {
+            int[] starts = new int[destinationNames.size() + 1];
+            for (int i = 0; i < rows; i++) starts[destinationColumn[i] + 1]++;
+            for (int d = 0; d < destinationNames.size(); d++) starts[d + 1] += starts[d];
+
+            int[] order = new int[rows];
+            int[] next = Arrays.copyOf(starts, destinationNames.size());
+            for (int i = 0; i < rows; i++) order[next[destinationColumn[i]]++] = i;
+
+            double[] prices = doubleColumns[0];
+            for (int d = 0; d < destinationNames.size(); d++) {
+                int first = starts[d];
+                int count = starts[d + 1] - first;
+                double[] groupPrices = new double[count];
+                for (int i = 0; i < count; i++) groupPrices[i] = prices[order[first + i]];
+                int[] groupOrder = PriceOrder.of(groupPrices, count);
+                int[] group = Arrays.copyOfRange(order, first, first + count);
+                for (int i = 0; i < count; i++) order[first + i] = group[groupOrder[i]];
+            }
+            return order;
+        }
+
+        private int[][] gather(int[][] columns, int[] order) {
+            int[][] sorted = new int[columns.length][];
+            for (int c = 0; c < columns.length; c++) {
+                sorted[c] = new int[rows];
+                for (int i = 0; i < rows; i++) sorted[c][i] = columns[c][order[i]];
+                columns[c] = null;
+            }
+            return sorted;
+        }
+
+        private int intern(String value) {
+            String key = value == null ? "" : value;
+            Integer id = stringIds.get(key);
+            if (id == null) {
+                id = strings.size();
+                stringIds.put(key, id);
+                strings.add(key);
+            }
+            return id;
+        }
+
+        private void grow(int capacity) {
+            for (int c = 0; c < doubleColumns.length; c++) doubleColumns[c] = Arrays.copyOf(doubleColumns[c], capacity);
+            for (int c = 0; c < intColumns.length; c++) intColumns[c] = Arrays.copyOf(intColumns[c], capacity);
+            for (int c = 0; c < stringColumns.length; c++) stringColumns[c] = Arrays.copyOf(stringColumns[c], capacity);
+            destinationColumn = Arrays.copyOf(destinationColumn, capacity);
+        }
+    }
+}
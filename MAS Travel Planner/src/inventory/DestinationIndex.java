@@ -0,0 +1,252 @@
+package inventory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Destination names and their aliases in a trie over normalized keys.
+ *
+ * Keys are lower-cased, accent-free and punctuation-free, so "paris",
+ * "New york" and "new-york" all find their destination. Exact lookup walks
+ * one key. Each trie node also keeps the first few destinations below it,
+ * so a prefix completion is a walk plus an array copy, whatever the number
+ * of destinations. Destinations with coordinates are also in a GeoIndex,
+ * for places that have no inventory of their own.
+ *
+ * Immutable once built and safe to share between threads.
+ */
+public class DestinationIndex {
+    // Catch-all inventory key in the supplier databases; not a destination
+    public static final String FALLBACK = "Default";
+    public static final int MAX_SUGGESTIONS = 10;
+    // Alias file, next to the supplier databases
+    public static final String ALIAS_FILE = "destination_aliases.json";
+    // Gazetteer of place coordinates, next to the supplier databases
+    public static final String COORDINATES_FILE = "destination_coordinates.json";
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        String destination;              // set when a key ends here
+        String[] suggestions = new String[0];
+
+        Node child(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char label) {
+            int i = Arrays.binarySearch(labels, label);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = label;
+            newChildren[at] = new Node();
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[at];
+        }
+    }
+
+    private final Node root = new Node();
+    private final List<String> destinations;
+    private final GeoIndex geo;
+
+    private DestinationIndex(Collection<String> names, Map<String, List<String>> aliases,
+                             Map<String, double[]> coordinates) {
+        TreeSet<String> known = new TreeSet<>();
+        for (String name : names) {
+            if (!FALLBACK.equals(name)) {
+                known.add(name);
+                insert(normalize(name), name);
+            }
+        }
+        // Aliases only count for destinations this index actually has
+        for (Map.Entry<String, List<String>> entry : aliases.entrySet()) {
+            if (known.contains(entry.getKey())) {
+                for (String alias : entry.getValue()) {
+                    insert(normalize(alias), entry.getKey());
+                }
+            }
+        }
+        destinations = Collections.unmodifiableList(new ArrayList<>(known));
+        collectSuggestions(root);
+        geo = GeoIndex.of(coordinates, destinations);
+    }
+
+    public static DestinationIndex of(Collection<String> names, Map<String, List<String>> aliases,
+                                      Map<String, double[]> coordinates) {
+        return new DestinationIndex(names, aliases, coordinates);
+    }
+
+    public static DestinationIndex empty() {
+        return new DestinationIndex(Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Index over the destinations and alias and gazetteer files in a
+     * database directory; missing files mean no aliases or coordinates.
+     */
+    public static DestinationIndex load(Collection<String> names, File databaseDir) {
+        return of(names, loadAliases(new File(databaseDir, ALIAS_FILE)),
+                GeoIndex.loadCoordinates(new File(databaseDir, COORDINATES_FILE)));
+    }
+
+    /**
+     * Lower-case, strip accents, turn punctuation into spaces and collapse
+     * runs of spaces: "  São-Paulo " becomes "sao paulo".
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(stripped.length());
+        boolean space = false;
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return key.toString();
+    }
+
+    public List<String> destinations() { return destinations; }
+
+    /**
+     * Destination a user's text or alias names, or null if there is none.
+     */
+    public String resolve(String text) {
+        Node node = walk(normalize(text));
+        return node == null ? null : node.destination;
+    }
+
+    /**
+     * Up to k destinations nearest to a place that is in the gazetteer,
+     * closest first; empty for unknown places.
+     */
+    public List<GeoIndex.Nearby> nearest(String place, int k) {
+        return geo.nearest(place, k);
+    }
+
+    /**
+     * Destinations whose name or an alias starts with the prefix, sorted,
+     * at most min(limit, MAX_SUGGESTIONS).
+     */
+    public List<String> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Node node = walk(key);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        int count = Math.min(limit, node.suggestions.length);
+        return Arrays.asList(Arrays.copyOf(node.suggestions, count));
+    }
+
+    private Node walk(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    private void insert(String key, String destination) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.addChild(key.charAt(i));
+        }
+        if (node.destination == null) {
+            node.destination = destination;
+        }
+    }
+
+    // Post-order: a node's suggestions are the first few distinct names below it
+    private static void collectSuggestions(Node node) {
+        TreeSet<String> below = new TreeSet<>();
+        if (node.destination != null) {
+            below.add(node.destination);
+        }
+        for (Node child : node.children) {
+            collectSuggestions(child);
+            below.addAll(Arrays.asList(child.suggestions));
+        }
+        List<String> first = new ArrayList<>(MAX_SUGGESTIONS);
+        for (String name : below) {
+            if (first.size() == MAX_SUGGESTIONS) break;
+            first.add(name);
+        }
+        node.suggestions = first.toArray(new String[0]);
+    }
+
+    /**
+     * Alias file: {"New York": ["NYC", "New York City"], ...}. A missing or
+     * unreadable file means no aliases.
+     */
+    public static Map<String, List<String>> loadAliases(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return new ObjectMapper().readValue(file, new TypeReference<TreeMap<String, List<String>>>() {});
+        } catch (IOException e) {
+            System.err.println("ERROR: Unable to read destination aliases " + file + " - " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Top-level keys of a supplier database, skipping the records.
+     */
+    public static List<String> namesIn(File json) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an object in " + json);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                names.add(parser.getCurrentName());
+                parser.nextToken();
+                parser.skipChildren();
+            }
+        }
+        return names;
+    }
+}
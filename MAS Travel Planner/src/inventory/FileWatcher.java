@@ -0,0 +1,105 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a callback on a daemon thread when any of a few files in one
+ * directory changes. Bursts of events are collapsed into one call once the
+ * writer has been quiet for a moment, so the callback sees a whole file.
+ */
+public class FileWatcher {
+    private static final long SETTLE_MS = 250; // editors write a file in several steps
+
+    private final String name;
+    private final File directory;
+    private final Set<Path> watched = new HashSet<>();
+    private final Runnable onChange;
+    private volatile WatchService watchService;
+
+    public FileWatcher(String name, File directory, Collection<String> fileNames, Runnable onChange) {
+        this.name = name;
+        this.directory = directory;
+        for (String fileName : fileNames) {
+            watched.add(Path.of(fileName));
+        }
+        this.onChange = onChange;
+    }
+
+    /**
+     * Start the watcher thread; false if the directory cannot be watched.
+     */
+    public boolean start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println(name + ": ERROR watching " + directory + ", hot reload disabled - " + e.getMessage());
+            return false;
+        }
+
+        Thread watcher = new Thread(this::watch, name + "-file-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return true;
+    }
+
+    public void stop() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // closing only wakes the watcher thread
+            }
+        }
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = drain(key);
+                // Wait until the writer is done before calling back
+                while ((key = service.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        // A failed reload must not end hot reload for good
+                        System.err.println(name + ": ERROR handling a change in " + directory + " - " + e);
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // agent is shutting down
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (watched.contains(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
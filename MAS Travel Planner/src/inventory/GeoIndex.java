@@ -0,0 +1,224 @@
+package inventory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Where places are, and which known destinations are nearest to them.
+ *
+ * Places come from a gazetteer of names and coordinates, which may list many
+ * more cities than the inventory has. The destinations that do have
+ * inventory are kept in a k-d tree over points on the unit sphere, so
+ * distance has no seam at the date line or the poles, and a k-nearest
+ * query visits O(log n + k) nodes instead of every destination.
+ *
+ * Immutable once built and safe to share between threads.
+ */
+public class GeoIndex {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * A destination and its great-circle distance from the query point.
+     */
+    public static final class Nearby {
+        private final String destination;
+        private final double distanceKm;
+
+        Nearby(String destination, double distanceKm) {
+            this.destination = destination;
+            this.distanceKm = distanceKm;
+        }
+
+        public String getDestination() { return destination; }
+        public double getDistanceKm() { return distanceKm; }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%.0f km)", destination, distanceKm);
+        }
+    }
+
+    // Normalized place name -> {latitude, longitude}
+    private final Map<String, double[]> places;
+
+    // k-d tree in implicit form: the node of range [lo, hi) is at (lo + hi) / 2,
+    // its splitting axis is the depth modulo 3
+    private final String[] names;
+    private final double[][] points;
+
+    private GeoIndex(Map<String, double[]> coordinates, Collection<String> destinations) {
+        places = new HashMap<>();
+        for (Map.Entry<String, double[]> entry : coordinates.entrySet()) {
+            double[] latLon = entry.getValue();
+            if (latLon != null && latLon.length == 2) {
+                places.put(DestinationIndex.normalize(entry.getKey()), latLon);
+            }
+        }
+
+        List<String> located = new ArrayList<>();
+        for (String destination : destinations) {
+            if (places.containsKey(DestinationIndex.normalize(destination))) {
+                located.add(destination);
+            }
+        }
+        names = located.toArray(new String[0]);
+        points = new double[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            points[i] = toPoint(places.get(DestinationIndex.normalize(names[i])));
+        }
+        build(0, names.length, 0);
+    }
+
+    public static GeoIndex of(Map<String, double[]> coordinates, Collection<String> destinations) {
+        return new GeoIndex(coordinates, destinations);
+    }
+
+    // Destinations with coordinates, i.e. those a nearest query can return
+    public int size() { return names.length; }
+
+    /**
+     * Up to k destinations nearest to the named place, closest first; empty
+     * if the place is not in the gazetteer. The place itself is included
+     * when it is a destination.
+     */
+    public List<Nearby> nearest(String place, int k) {
+        double[] latLon = places.get(DestinationIndex.normalize(place));
+        return latLon == null ? Collections.emptyList() : nearest(latLon[0], latLon[1], k);
+    }
+
+    public List<Nearby> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || names.length == 0) {
+            return Collections.emptyList();
+        }
+        double[] target = toPoint(new double[]{latitude, longitude});
+        // Max-heap on squared chord length holding the best k so far
+        PriorityQueue<double[]> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(b[0], a[0]));
+        search(0, names.length, 0, target, k, best);
+
+        List<Nearby> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            double[] entry = best.poll();
+            result.add(new Nearby(names[(int) entry[1]], distanceKm(entry[0])));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void search(int lo, int hi, int axis, double[] target, int k, PriorityQueue<double[]> best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double[] point = points[mid];
+        double d2 = squaredDistance(point, target);
+        if (best.size() < k) {
+            best.add(new double[]{d2, mid});
+        } else if (d2 < best.peek()[0]) {
+            best.poll();
+            best.add(new double[]{d2, mid});
+        }
+
+        double delta = target[axis] - point[axis];
+        int next = (axis + 1) % 3;
+        if (delta < 0) {
+            search(lo, mid, next, target, k, best);
+            if (best.size() < k || delta * delta < best.peek()[0]) {
+                search(mid + 1, hi, next, target, k, best);
+            }
+        } else {
+            search(mid + 1, hi, next, target, k, best);
+            if (best.size() < k || delta * delta < best.peek()[0]) {
+                search(lo, mid, next, target, k, best);
+            }
+        }
+    }
+
+    // Puts the median of [lo, hi) on the axis at the middle, smaller to its left
+    private void build(int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        int next = (axis + 1) % 3;
+        build(lo, mid, next);
+        build(mid + 1, hi, next);
+    }
+
+    // Quickselect over [left, right] inclusive
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = points[(left + right) >>> 1][axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[i][axis] < pivot) i++;
+                while (points[j][axis] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        double[] point = points[a];
+        points[a] = points[b];
+        points[b] = point;
+        String name = names[a];
+        names[a] = names[b];
+        names[b] = name;
+    }
+
+    private static double[] toPoint(double[] latLon) {
+        double lat = Math.toRadians(latLon[0]);
+        double lon = Math.toRadians(latLon[1]);
+        return new double[]{Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Great-circle distance from the squared chord between two unit vectors
+    private static double distanceKm(double squaredChord) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(squaredChord) / 2));
+    }
+
+    /**
+     * Gazetteer file: {"Paris": [48.8566, 2.3522], ...}. A missing or
+     * unreadable file means no coordinates.
+     */
+    public static Map<String, double[]> loadCoordinates(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return new ObjectMapper().readValue(file, new TypeReference<TreeMap<String, double[]>>() {});
+        } catch (IOException e) {
+            System.err.println("ERROR: Unable to read destination coordinates " + file + " - " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+}
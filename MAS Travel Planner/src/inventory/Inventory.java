@@ -0,0 +1,40 @@
+package inventory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only supplier inventory per destination, cheapest first. Lists
+ * returned are views; implementations are immutable and thread-safe.
+ */
+public interface Inventory<T> {
+
+    boolean contains(String destination);
+
+    Set<String> destinations();
+
+    int size();
+
+    default int destinationCount() { return destinations().size(); }
+
+    /**
+     * Every option for the destination, cheapest first.
+     */
+    List<T> all(String destination);
+
+    /**
+     * Options priced at most maxPrice, cheapest first.
+     */
+    List<T> upTo(String destination, double maxPrice);
+
+    static <T> Inventory<T> empty() {
+        return new Inventory<T>() {
+            @Override public boolean contains(String destination) { return false; }
+            @Override public Set<String> destinations() { return Collections.emptySet(); }
+            @Override public int size() { return 0; }
+            @Override public List<T> all(String destination) { return Collections.emptyList(); }
+            @Override public List<T> upTo(String destination, double maxPrice) { return Collections.emptyList(); }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package inventory;
+
+/**
+ * One loaded version of a supplier database. Never changes after it is
+ * built, so a query that read it once sees consistent data even if a reload
+ * replaces it meanwhile.
+ */
+public final class InventorySnapshot<T> {
+    private final Inventory<T> index;
+    private final DestinationIndex destinations;
+    private final long version;
+    private final long loadedAt;
+    private final long loadMillis;
+
+    public InventorySnapshot(Inventory<T> index, DestinationIndex destinations, long version, long loadedAt,
+                             long loadMillis) {
+        this.index = index;
+        this.destinations = destinations;
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.loadMillis = loadMillis;
+    }
+
+    public Inventory<T> getIndex() { return index; }
+
+    /**
+     * Index key for what the user typed: its destination under any case,
+     * spelling or alias the index knows, else the nearest destination to
+     * that place, else the catch-all entry.
+     */
+    public String keyFor(String destination) {
+        String resolved = destinations.resolve(destination);
+        if (resolved != null && index.contains(resolved)) {
+            return resolved;
+        }
+        for (GeoIndex.Nearby nearby : destinations.nearest(destination, 1)) {
+            if (index.contains(nearby.getDestination())) {
+                return nearby.getDestination();
+            }
+        }
+        return DestinationIndex.FALLBACK;
+    }
+
+    /**
+     * Increases with every load; sent to the planner so it can drop plans
+     * built from an older version.
+     */
+    public long getVersion() { return version; }
+
+    // When this version was swapped in, and the time spent reading and
+    // indexing the file; sent to the planner along with the version
+    public long getLoadedAt() { return loadedAt; }
+    public long getLoadMillis() { return loadMillis; }
+}
@@ -0,0 +1,195 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Inventory served straight from a memory-mapped compiled snapshot.
+ *
+ * Only the destination index is read onto the heap when the file is opened.
+ * Prices are binary-searched in the mapped column and records are built
+ * when a list element is read, so startup time and heap do not grow with
+ * the catalog. Replicas mapping the same file share its pages.
+ *
+ * Files are limited to 2 GB, the size of one mapping.
+ */
+public class MappedInventory<T> extends AbstractColumnInventory<T> {
+    private final RecordSchema<T> schema;
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int doubleColumns;
+    private final int intColumns;
+    private final int stringColumns;
+
+    private MappedInventory(RecordSchema<T> schema, ByteBuffer buffer, Map<String, int[]> destinations,
+                            int includedRows, int rows, int stringOffsets, int stringData, int doubleColumns) {
+        super(destinations, includedRows);
+        this.schema = schema;
+        this.buffer = buffer;
+        this.rows = rows;
+        this.stringOffsets = stringOffsets;
+        this.stringData = stringData;
+        this.doubleColumns = doubleColumns;
+        this.intColumns = doubleColumns + 8 * rows * schema.doubleColumns();
+        this.stringColumns = intColumns + 4 * rows * schema.intColumns();
+    }
+
+    public static <T> MappedInventory<T> open(File file, RecordSchema<T> schema) throws IOException {
+        return open(file, schema, destination -> true);
+    }
+
+    /**
+     * Map the snapshot but index only the destinations the filter accepts;
+     * the pages of the others are never touched, so never read from disk.
+     */
+    public static <T> MappedInventory<T> open(File file, RecordSchema<T> schema, Predicate<String> include)
+            throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        long size = buffer.capacity();
+        if (size < SnapshotFormat.HEADER_BYTES || buffer.getInt(0) != SnapshotFormat.MAGIC) {
+            throw new IOException("Not an inventory snapshot");
+        }
+        if (buffer.getInt(4) != SnapshotFormat.FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format " + buffer.getInt(4));
+        }
+        int schemaNameId = buffer.getInt(16);
+        int rows = buffer.getInt(20);
+        int doubles = buffer.getInt(24);
+        int ints = buffer.getInt(28);
+        int names = buffer.getInt(32);
+        int strings = buffer.getInt(36);
+        int destinationCount = buffer.getInt(40);
+        if (doubles != schema.doubleColumns() || ints != schema.intColumns() || names != schema.stringColumns()) {
+            throw new IOException("Snapshot columns do not match " + schema.name() + " records");
+        }
+
+        // A truncated or overwritten file must fail here, not on a later read
+        int stringOffsets = SnapshotFormat.HEADER_BYTES;
+        if (rows < 0 || strings < 0 || destinationCount < 0 || schemaNameId < 0 || schemaNameId >= strings
+                || stringOffsets + 4L * (strings + 1) > size) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        int stringData = stringOffsets + 4 * (strings + 1);
+        long blobBytes = buffer.getInt(stringOffsets + 4 * strings);
+        if (blobBytes < 0) {
+            throw new IOException("Corrupt snapshot string table");
+        }
+        long end = stringData + blobBytes + (long) destinationCount * SnapshotFormat.INDEX_ENTRY_BYTES
+                + (long) rows * (8L * doubles + 4L * ints + 4L * names);
+        if (end > size) {
+            throw new IOException("Truncated snapshot, " + size + " of " + end + " bytes");
+        }
+
+        String kind = string(buffer, stringOffsets, stringData, schemaNameId);
+        if (!schema.name().equals(kind)) {
+            throw new IOException("Snapshot holds " + kind + " records, expected " + schema.name());
+        }
+
+        // The destination index is the only part copied onto the heap
+        int index = stringData + buffer.getInt(stringOffsets + 4 * strings);
+        Map<String, int[]> destinations = new HashMap<>();
+        int includedRows = 0;
+        for (int d = 0; d < destinationCount; d++) {
+            int entry = index + d * SnapshotFormat.INDEX_ENTRY_BYTES;
+            String destination = string(buffer, stringOffsets, stringData, buffer.getInt(entry));
+            int firstRow = buffer.getInt(entry + 4);
+            int rowCount = buffer.getInt(entry + 8);
+            if (firstRow < 0 || rowCount < 0 || (long) firstRow + rowCount > rows) {
+                throw new IOException("Corrupt snapshot index entry for " + destination);
+            }
+            if (include.test(destination)) {
+                destinations.put(destination, new int[]{firstRow, rowCount});
+                includedRows += rowCount;
+            }
+        }
+        int doubleColumns = index + destinationCount * SnapshotFormat.INDEX_ENTRY_BYTES;
+        return new MappedInventory<>(schema, buffer, destinations, includedRows, rows, stringOffsets, stringData,
+                doubleColumns);
+    }
+
+    /**
+     * Modification time of the JSON the snapshot was compiled from.
+     */
+    public static long sourceModified(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            channel.read(header, 0);
+            return header.getInt(0) == SnapshotFormat.MAGIC ? header.getLong(8) : -1;
+        }
+    }
+
+    /**
+     * A loader that maps the compiled snapshot next to the JSON file when it
+     * is up to date with it, and otherwise falls back to parsing the JSON.
+     */
+    public static <T> ReloadableInventory.Loader<T> preferSnapshot(RecordSchema<T> schema,
+                                                                   ReloadableInventory.Loader<T> jsonLoader) {
+        return preferSnapshot(schema, destination -> true, jsonLoader);
+    }
+
+    /**
+     * As above, holding only the destinations the filter accepts; the JSON
+     * loader should apply the same filter.
+     */
+    public static <T> ReloadableInventory.Loader<T> preferSnapshot(RecordSchema<T> schema, Predicate<String> include,
+                                                                   ReloadableInventory.Loader<T> jsonLoader) {
+        return json -> {
+            File snapshot = SnapshotFormat.snapshotFor(json);
+            if (snapshot.isFile()) {
+                try {
+                    if (sourceModified(snapshot) == json.lastModified()) {
+                        return open(snapshot, schema, include);
+                    }
+                    System.out.println("Inventory snapshot " + snapshot.getName() + " is stale, reading " + json.getName());
+                } catch (IOException | RuntimeException e) {
+                    // A damaged snapshot must never cost the agent a JSON it can read
+                    System.err.println("ERROR: Unable to map " + snapshot + ", reading JSON - " + e);
+                }
+            }
+            return jsonLoader.load(json);
+        };
+    }
+
+    @Override
+    double price(int row) {
+        return buffer.getDouble(doubleColumns + 8 * row);
+    }
+
+    private static String string(ByteBuffer buffer, int stringOffsets, int stringData, int id) {
+        int start = buffer.getInt(stringOffsets + 4 * id);
+        int end = buffer.getInt(stringOffsets + 4 * (id + 1));
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    T materialize(String destination, int row) {
+        double[] doubles = new double[schema.doubleColumns()];
+        int[] ints = new int[schema.intColumns()];
+        String[] strings = new String[schema.stringColumns()];
+        for (int c = 0; c < doubles.length; c++) {
+            doubles[c] = buffer.getDouble(doubleColumns + 8 * (c * rows + row));
+        }
+        for (int c = 0; c < ints.length; c++) {
+            ints[c] = buffer.getInt(intColumns + 4 * (c * rows + row));
+        }
+        for (int c = 0; c < strings.length; c++) {
+            strings[c] = string(buffer, stringOffsets, stringData, buffer.getInt(stringColumns + 4 * (c * rows + row)));
+        }
+        return schema.read(destination, doubles, ints, strings);
+    }
+}
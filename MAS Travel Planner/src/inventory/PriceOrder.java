@@ -0,0 +1,39 @@
+package inventory;
+
+/**
+ * Stable ascending order of a price column, as a permutation of row
+ * numbers. Sorting the ints instead of the rows lets every other column be
+ * gathered into price order once, without boxing or comparators.
+ */
+final class PriceOrder {
+
+    private PriceOrder() {}
+
+    /**
+     * Rows 0..n-1 ordered by price; equal prices keep their feed order.
+     */
+    static int[] of(double[] prices, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // Bottom-up merge sort, ping-ponging between two buffers
+        int[] buffer = new int[n];
+        for (int width = 1; width < n; width <<= 1) {
+            for (int low = 0; low < n; low += width << 1) {
+                int mid = Math.min(low + width, n);
+                int high = Math.min(low + (width << 1), n);
+                int left = low, right = mid, out = low;
+                while (left < mid && right < high) {
+                    buffer[out++] = prices[order[right]] < prices[order[left]] ? order[right++] : order[left++];
+                }
+                while (left < mid) buffer[out++] = order[left++];
+                while (right < high) buffer[out++] = order[right++];
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
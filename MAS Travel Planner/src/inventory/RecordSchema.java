@@ -0,0 +1,23 @@
+package inventory;
+
+/**
+ * How one kind of supplier record splits into fixed-width columns for the
+ * compiled snapshot, and how it is rebuilt from them. Double column 0 is
+ * always the price the inventory is sorted by. The destination is not a
+ * column; rows are grouped under it.
+ */
+public interface RecordSchema<T> {
+
+    // Stored in the snapshot header and checked on open
+    String name();
+
+    int doubleColumns();
+
+    int intColumns();
+
+    int stringColumns();
+
+    void write(T record, double[] doubles, int[] ints, String[] strings);
+
+    T read(String destination, double[] doubles, int[] ints, String[] strings);
+}
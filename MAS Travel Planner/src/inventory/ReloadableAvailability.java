@@ -0,0 +1,68 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Hotel room calendars that follow their file on disk, the same way
+ * ReloadableInventory follows a supplier database: a changed file is parsed
+ * on the watcher thread and swapped in whole, and a file that fails to
+ * parse leaves the current calendars in place.
+ */
+public class ReloadableAvailability {
+    private final String name;
+    private final File file;
+    private final Predicate<String> include;
+    private final AtomicReference<AvailabilityIndex> current = new AtomicReference<>(AvailabilityIndex.empty());
+    private volatile FileWatcher watcher;
+
+    /**
+     * Loads the file right away, keeping the destinations the filter
+     * accepts; an unreadable file gives no calendars.
+     */
+    public ReloadableAvailability(String name, File file, Predicate<String> include) {
+        this.name = name;
+        this.file = file.getAbsoluteFile();
+        this.include = include;
+        reload();
+    }
+
+    public AvailabilityIndex current() {
+        return current.get();
+    }
+
+    /**
+     * Parse the file and swap the result in; false if it could not be read.
+     */
+    public boolean reload() {
+        AvailabilityIndex index;
+        try {
+            index = AvailabilityIndex.load(file, include);
+        } catch (IOException | RuntimeException e) {
+            // e.g. a negative room count; keep the calendars already in place
+            System.err.println(name + ": ERROR loading " + file + " - " + e);
+            return false;
+        }
+        current.set(index);
+        System.out.println(name + ": Loaded room calendars for " + index.hotelCount() + " hotels");
+        return true;
+    }
+
+    /**
+     * Start the watcher thread; the agent's takeDown() should stop it.
+     */
+    public void startWatching() {
+        watcher = new FileWatcher(name, file.getParentFile(), Collections.singleton(file.getName()), this::reload);
+        watcher.start();
+    }
+
+    public void stopWatching() {
+        FileWatcher running = watcher;
+        if (running != null) {
+            running.stop();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package inventory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A supplier database that follows its file on disk.
+ *
+ * A FileWatcher thread watches the file's directory. When the file
+ * changes, the thread parses it into a new snapshot and swaps that in with
+ * a single reference write, so the agent thread never waits on a parse and never
+ * sees a half-loaded index. A file that fails to parse leaves the current
+ * snapshot in place. Recompiling the binary snapshot next to the file
+ * (see SnapshotCompiler) or editing the destination alias or coordinate
+ * files also triggers a reload.
+ */
+public class ReloadableInventory<T> {
+    /**
+     * Reads the database file into an index.
+     */
+    public interface Loader<T> {
+        Inventory<T> load(File file) throws IOException;
+    }
+
+    private final String name;
+    private final File file;
+    private final Loader<T> loader;
+    private final AtomicReference<InventorySnapshot<T>> current = new AtomicReference<>();
+    private volatile FileWatcher watcher;
+
+    /**
+     * Loads the file right away; an unreadable file gives an empty inventory.
+     */
+    public ReloadableInventory(String name, File file, Loader<T> loader) {
+        this.name = name;
+        this.file = file.getAbsoluteFile();
+        this.loader = loader;
+        if (!reload()) {
+            current.set(new InventorySnapshot<>(Inventory.<T>empty(), DestinationIndex.empty(), nextVersion(),
+                    System.currentTimeMillis(), 0));
+        }
+    }
+
+    public InventorySnapshot<T> current() {
+        return current.get();
+    }
+
+    /**
+     * Parse the file and swap the result in; false if it could not be read.
+     */
+    public boolean reload() {
+        long start = System.nanoTime();
+        Inventory<T> index;
+        try {
+            index = loader.load(file);
+        } catch (Exception e) {
+            System.err.println(name + ": ERROR loading " + file + " - " + e.getMessage());
+            return false;
+        }
+        DestinationIndex destinations = DestinationIndex.load(index.destinations(), file.getParentFile());
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        InventorySnapshot<T> snapshot = new InventorySnapshot<>(index, destinations, nextVersion(),
+                System.currentTimeMillis(), loadMillis);
+        current.set(snapshot);
+        System.out.println(name + ": Loaded " + index.size() + " options for " + index.destinationCount() +
+                " destinations in " + loadMillis + " ms (version " + snapshot.getVersion() + ")");
+        return true;
+    }
+
+    // Load time, kept strictly increasing so two quick reloads never share one
+    private long nextVersion() {
+        InventorySnapshot<T> previous = current.get();
+        long now = System.currentTimeMillis();
+        return previous == null ? now : Math.max(now, previous.getVersion() + 1);
+    }
+
+    /**
+     * Start the watcher thread; the agent's takeDown() should stop it.
+     */
+    public void startWatching() {
+        watcher = new FileWatcher(name, file.getParentFile(), Arrays.asList(file.getName(),
+                SnapshotFormat.snapshotFor(file).getName(), DestinationIndex.ALIAS_FILE,
+                DestinationIndex.COORDINATES_FILE), this::reload);
+        watcher.start();
+    }
+
+    public void stopWatching() {
+        FileWatcher running = watcher;
+        if (running != null) {
+            running.stop();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package inventory;
+
+import java.time.LocalDate;
+
+/**
+ * Free rooms per night for one hotel.
+ *
+ * Nights are epoch days. Bookings are kept in a segment tree over the
+ * nights between the first and last booking: each node holds the fewest
+ * free rooms in its range and a pending change for the whole range, so
+ * both adding a booking and asking "how many rooms are free on every
+ * night of [from, to)" touch O(log n) nodes. Nights outside the booked
+ * span have every room free.
+ */
+public class RoomCalendar {
+    private final int rooms;
+    private final long firstDay;  // epoch day of tree position 0
+    private final int days;
+    private final int[] min;      // fewest free rooms in the node's range, pending changes below included
+    private final int[] add;      // change applied to the node's whole range
+
+    /**
+     * A calendar for the nights [firstDay, firstDay + days), all rooms free.
+     */
+    public RoomCalendar(int rooms, LocalDate firstDay, int days) {
+        if (rooms < 0 || days < 0) {
+            throw new IllegalArgumentException("Rooms and days must not be negative");
+        }
+        this.rooms = rooms;
+        this.firstDay = firstDay.toEpochDay();
+        this.days = days;
+        int size = 1;
+        while (size < days) {
+            size <<= 1;
+        }
+        this.min = new int[2 * size];
+        this.add = new int[2 * size];
+        if (days > 0) {
+            build(1, 0, days, rooms);
+        }
+    }
+
+    private void build(int node, int lo, int hi, int value) {
+        min[node] = value;
+        if (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            build(2 * node, lo, mid, value);
+            build(2 * node + 1, mid, hi, value);
+        }
+    }
+
+    /**
+     * Take rooms for every night in [from, to); nights outside the calendar
+     * are ignored. May take more rooms than exist, i.e. overbook.
+     */
+    public void reserve(LocalDate from, LocalDate to, int count) {
+        int lo = position(from);
+        int hi = position(to);
+        if (lo < hi) {
+            update(1, 0, days, lo, hi, -count);
+        }
+    }
+
+    /**
+     * Fewest rooms free on any night in [from, to); all rooms for an empty
+     * range or one outside the booked span.
+     */
+    public int freeRooms(LocalDate from, LocalDate to) {
+        long start = from.toEpochDay();
+        long end = to.toEpochDay();
+        int lo = position(from);
+        int hi = position(to);
+        int free = lo < hi ? query(1, 0, days, lo, hi) : rooms;
+        // Nights before or after the calendar have every room free
+        if (start < firstDay || end > firstDay + days) {
+            free = Math.min(free, rooms);
+        }
+        return start < end ? Math.max(0, free) : rooms;
+    }
+
+    public boolean hasRooms(LocalDate from, LocalDate to, int count) {
+        return freeRooms(from, to) >= count;
+    }
+
+    // Tree position of a night, clamped to [0, days]
+    private int position(LocalDate date) {
+        long offset = date.toEpochDay() - firstDay;
+        return (int) Math.max(0, Math.min(days, offset));
+    }
+
+    private void update(int node, int lo, int hi, int from, int to, int delta) {
+        if (from <= lo && hi <= to) {
+            min[node] += delta;
+            add[node] += delta;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (from < mid) {
+            update(2 * node, lo, mid, from, to, delta);
+        }
+        if (to > mid) {
+            update(2 * node + 1, mid, hi, from, to, delta);
+        }
+        min[node] = Math.min(min[2 * node], min[2 * node + 1]) + add[node];
+    }
+
+    private int query(int node, int lo, int hi, int from, int to) {
+        if (from <= lo && hi <= to) {
+            return min[node];
+        }
+        int mid = (lo + hi) >>> 1;
+        int best = Integer.MAX_VALUE;
+        if (from < mid) {
+            best = Math.min(best, query(2 * node, lo, mid, from, to));
+        }
+        if (to > mid) {
+            best = Math.min(best, query(2 * node + 1, mid, hi, from, to));
+        }
+        return best + add[node];
+    }
+}
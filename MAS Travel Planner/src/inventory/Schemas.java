@@ -0,0 +1,53 @@
+package inventory;
+
+import models.HotelOption;
+import models.TransportOption;
+
+/**
+ * Column layouts of the supplier records.
+ */
+public final class Schemas {
+
+    // price | stars | name
+    public static final RecordSchema<HotelOption> HOTEL = new RecordSchema<HotelOption>() {
+        @Override public String name() { return "hotel"; }
+        @Override public int doubleColumns() { return 1; }
+        @Override public int intColumns() { return 1; }
+        @Override public int stringColumns() { return 1; }
+
+        @Override
+        public void write(HotelOption hotel, double[] doubles, int[] ints, String[] strings) {
+            doubles[0] = hotel.getCostPerNight();
+            ints[0] = hotel.getStars();
+            strings[0] = hotel.getName();
+        }
+
+        @Override
+        public HotelOption read(String destination, double[] doubles, int[] ints, String[] strings) {
+            return new HotelOption(strings[0], doubles[0], destination, ints[0]);
+        }
+    };
+
+    // cost, durationHours | comfort | type
+    public static final RecordSchema<TransportOption> TRANSPORT = new RecordSchema<TransportOption>() {
+        @Override public String name() { return "transport"; }
+        @Override public int doubleColumns() { return 2; }
+        @Override public int intColumns() { return 1; }
+        @Override public int stringColumns() { return 1; }
+
+        @Override
+        public void write(TransportOption transport, double[] doubles, int[] ints, String[] strings) {
+            doubles[0] = transport.getCost();
+            doubles[1] = transport.getDurationHours();
+            ints[0] = transport.getComfort();
+            strings[0] = transport.getType();
+        }
+
+        @Override
+        public TransportOption read(String destination, double[] doubles, int[] ints, String[] strings) {
+            return new TransportOption(strings[0], doubles[0], destination, doubles[1], ints[0]);
+        }
+    };
+
+    private Schemas() {}
+}
@@ -0,0 +1,81 @@
+package inventory;
+
+import util.ConsistentHashRing;
+
+import java.util.function.Predicate;
+
+/**
+ * Which part of a supplier database one agent holds, written "index/count",
+ * e.g. "1/3" for the second of three shards.
+ *
+ * Destinations are assigned to shards on a consistent-hash ring of their
+ * normalized names, so growing from N to N + 1 shards moves about 1/(N + 1)
+ * of the destinations. Every shard keeps the catch-all Default entry, so
+ * any shard can answer for an unknown place.
+ */
+public final class ShardSpec implements Predicate<String> {
+    public static final ShardSpec WHOLE = new ShardSpec(0, 1);
+
+    private static final int VIRTUAL_NODES = 64;
+
+    private final int index;
+    private final int count;
+    private final ConsistentHashRing<Integer> ring = new ConsistentHashRing<>(VIRTUAL_NODES);
+
+    public ShardSpec(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+        for (int i = 0; i < count; i++) {
+            ring.add("shard-" + i, i);
+        }
+    }
+
+    /**
+     * Parse "index/count"; null or empty means the whole database.
+     */
+    public static ShardSpec parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return WHOLE;
+        }
+        String[] parts = spec.trim().split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Shard must be index/count, got " + spec);
+        }
+        try {
+            return new ShardSpec(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shard must be index/count, got " + spec);
+        }
+    }
+
+    /**
+     * Shard from an agent's first start-up argument, the whole database
+     * without one.
+     */
+    public static ShardSpec fromArguments(Object[] args) {
+        return args != null && args.length > 0 && args[0] != null ? parse(args[0].toString()) : WHOLE;
+    }
+
+    public int getIndex() { return index; }
+    public int getCount() { return count; }
+    public boolean isWhole() { return count == 1; }
+
+    /**
+     * Whether this shard holds the destination's inventory.
+     */
+    @Override
+    public boolean test(String destination) {
+        if (count == 1 || DestinationIndex.FALLBACK.equals(destination)) {
+            return true;
+        }
+        return ring.get(DestinationIndex.normalize(destination)) == index;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,147 @@
+package inventory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import models.HotelOption;
+import models.TransportOption;
+
+/**
+ * Compiles a JSON supplier database into the binary snapshot the agents
+ * memory-map at startup (see SnapshotFormat).
+ *
+ * Usage: SnapshotCompiler hotel|transport input.json [output.bin]
+ *
+ * The output defaults to the input with a .bin extension, which is where the
+ * agents look for it. Run it after every JSON change; a stale snapshot is
+ * ignored in favour of the JSON.
+ */
+public class SnapshotCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SnapshotCompiler hotel|transport input.json [output.bin]");
+            System.exit(1);
+        }
+        File input = new File(args[1]);
+        File output = args.length > 2 ? new File(args[2]) : SnapshotFormat.snapshotFor(input);
+
+        long start = System.nanoTime();
+        int rows;
+        if (Schemas.HOTEL.name().equals(args[0])) {
+            rows = compile(new StreamingInventoryLoader<>("SnapshotCompiler", HotelOption.class,
+                    Schemas.HOTEL).load(input), Schemas.HOTEL, input.lastModified(), output);
+        } else if (Schemas.TRANSPORT.name().equals(args[0])) {
+            rows = compile(new StreamingInventoryLoader<>("SnapshotCompiler", TransportOption.class,
+                    Schemas.TRANSPORT).load(input), Schemas.TRANSPORT, input.lastModified(), output);
+        } else {
+            throw new IllegalArgumentException("Unknown inventory kind: " + args[0]);
+        }
+        System.out.println("SnapshotCompiler: Wrote " + rows + " rows to " + output + " in " +
+                (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Write the inventory as a snapshot; the file is replaced atomically so
+     * agents never map a partly written one.
+     */
+    public static <T> int compile(Inventory<T> inventory, RecordSchema<T> schema, long sourceModified,
+                                  File output) throws IOException {
+        List<String> destinations = new ArrayList<>(new TreeSet<>(inventory.destinations()));
+        int rows = inventory.size();
+
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int schemaNameId = intern(schema.name(), stringIds, strings);
+
+        double[][] doubleColumns = new double[schema.doubleColumns()][rows];
+        int[][] intColumns = new int[schema.intColumns()][rows];
+        int[][] stringColumns = new int[schema.stringColumns()][rows];
+        int[][] index = new int[destinations.size()][3];
+
+        double[] doubles = new double[schema.doubleColumns()];
+        int[] ints = new int[schema.intColumns()];
+        String[] names = new String[schema.stringColumns()];
+        int row = 0;
+        for (int d = 0; d < destinations.size(); d++) {
+            String destination = destinations.get(d);
+            index[d][0] = intern(destination, stringIds, strings);
+            index[d][1] = row;
+            for (T record : inventory.all(destination)) {
+                schema.write(record, doubles, ints, names);
+                for (int c = 0; c < doubles.length; c++) doubleColumns[c][row] = doubles[c];
+                for (int c = 0; c < ints.length; c++) intColumns[c][row] = ints[c];
+                for (int c = 0; c < names.length; c++) stringColumns[c][row] = intern(names[c], stringIds, strings);
+                row++;
+            }
+            index[d][2] = row - index[d][1];
+        }
+
+        File temp = new File(output.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(SnapshotFormat.MAGIC);
+            out.writeInt(SnapshotFormat.FORMAT_VERSION);
+            out.writeLong(sourceModified);
+            out.writeInt(schemaNameId);
+            out.writeInt(rows);
+            out.writeInt(doubleColumns.length);
+            out.writeInt(intColumns.length);
+            out.writeInt(stringColumns.length);
+            out.writeInt(strings.size());
+            out.writeInt(destinations.size());
+
+            List<byte[]> encoded = new ArrayList<>(strings.size());
+            int offset = 0;
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            for (int[] entry : index) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+                out.writeInt(entry[2]);
+            }
+
+            for (double[] column : doubleColumns) {
+                for (double value : column) out.writeDouble(value);
+            }
+            for (int[] column : intColumns) {
+                for (int value : column) out.writeInt(value);
+            }
+            for (int[] column : stringColumns) {
+                for (int value : column) out.writeInt(value);
+            }
+        }
+        Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<String> strings) {
+        String key = value == null ? "" : value;
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = strings.size();
+            ids.put(key, id);
+            strings.add(key);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,39 @@
+package inventory;
+
+import java.io.File;
+
+/**
+ * Layout of a compiled inventory snapshot (big-endian):
+ *
+ *   header      int magic, int formatVersion, long sourceModified,
+ *               int schemaNameId, int rows, int doubleColumns,
+ *               int intColumns, int stringColumns, int strings,
+ *               int destinations
+ *   strings     int[strings + 1] byte offsets into the UTF-8 blob, then
+ *               the blob
+ *   index       per destination: int nameId, int firstRow, int rowCount,
+ *               sorted by name; rows of a destination are contiguous and
+ *               cheapest first
+ *   columns     each double column as rows x 8 bytes, then each int column
+ *               and each string column (string ids) as rows x 4 bytes
+ *
+ * sourceModified is the JSON file's modification time, so a snapshot older
+ * than its source is never used.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x54504e56; // "TPNV"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 4 * 7;
+    static final int INDEX_ENTRY_BYTES = 12;
+
+    private SnapshotFormat() {}
+
+    /**
+     * Snapshot kept next to its JSON source: hotel_data.json -> hotel_data.bin
+     */
+    static File snapshotFor(File json) {
+        String name = json.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(json.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".bin");
+    }
+}
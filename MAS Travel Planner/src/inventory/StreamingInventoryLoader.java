@@ -0,0 +1,79 @@
+package inventory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Reads a supplier database of the form {"destination": [ {...}, ... ], ...}
+ * with the Jackson token stream, one record at a time.
+ *
+ * Each record is bound on its own and split straight into the columns of
+ * a ColumnarInventory, so neither a JSON tree, an intermediate Map of Lists
+ * nor the record objects themselves are kept; peak memory is the columns
+ * being built plus one record. Destinations the filter rejects, such as
+ * those of another shard, are skipped without binding their records.
+ */
+public class StreamingInventoryLoader<T> {
+    private static final int PROGRESS_EVERY = 1_000_000;
+
+    private final String name;
+    private final ObjectReader reader;
+    private final RecordSchema<T> schema;
+    private final Predicate<String> include;
+
+    public StreamingInventoryLoader(String name, Class<T> type, RecordSchema<T> schema) {
+        this(name, type, schema, destination -> true);
+    }
+
+    public StreamingInventoryLoader(String name, Class<T> type, RecordSchema<T> schema, Predicate<String> include) {
+        this.name = name;
+        this.reader = new ObjectMapper().readerFor(type);
+        this.schema = schema;
+        this.include = include;
+    }
+
+    public ColumnarInventory<T> load(File file) throws IOException {
+        long start = System.nanoTime();
+        ColumnarInventory.Builder<T> builder = new ColumnarInventory.Builder<>(schema);
+
+        try (JsonParser parser = reader.getFactory().createParser(file)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String destination = parser.getCurrentName();
+                expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+                if (!include.test(destination)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    T record = reader.readValue(parser);
+                    builder.add(destination, record);
+                    if (builder.size() % PROGRESS_EVERY == 0) {
+                        System.out.println(name + ": Streamed " + builder.size() + " records...");
+                    }
+                }
+                expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+            }
+            expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+        }
+
+        ColumnarInventory<T> index = builder.build();
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.printf("%s: Streamed %d records from %s at %.0f records/sec%n",
+                name, index.size(), file.getName(), index.size() / seconds);
+        return index;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " +
+                    parser.getCurrentLocation());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
+import java.util.BitSet;
 
 public class HotelOption implements Serializable {
 
@@ -12,6 +13,12 @@ public class HotelOption implements Serializable {
 
     private String destination;
 
+    private int stars; // hotel tier, 1-5; 0 when the supplier does not say
+
+    // Flexible searches: the date pairs of the window with a room free,
+    // numbered as FlexibleDateSearch visits them; null when not checked
+    private BitSet freeStays;
+
     public HotelOption() {}  // <-- REQUIRED for Jackson
 
     public HotelOption(String name, double costPerNight, String destination) {
@@ -20,7 +27,28 @@ public class HotelOption implements Serializable {
         this.destination = destination;
     }
 
+    public HotelOption(String name, double costPerNight, String destination, int stars) {
+        this(name, costPerNight, destination);
+        this.stars = stars;
+    }
+
     public String getName() { return name; }
     public double getCostPerNight() { return costPerNight; }
     public String getDestination() { return destination; }
+    public int getStars() { return stars; }
+
+    /**
+     * A copy that is only offered for the given date pairs.
+     */
+    public HotelOption withFreeStays(BitSet stays) {
+        HotelOption copy = new HotelOption(name, costPerNight, destination, stars);
+        copy.freeStays = stays;
+        return copy;
+    }
+
+    public boolean hasStayLimits() { return freeStays != null; }
+
+    public boolean isFreeOn(int stay) {
+        return freeStays == null || freeStays.get(stay);
+    }
 }
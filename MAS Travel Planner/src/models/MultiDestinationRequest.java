@@ -0,0 +1,38 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A search comparing several destinations for the same dates and budget.
+ * getDestination() returns the comma-separated list, which is what the
+ * planner uses as the search key; per-destination copies are made with
+ * withDestination().
+ */
+public class MultiDestinationRequest extends UserRequest {
+    private List<String> destinations;
+
+    public MultiDestinationRequest(List<String> destinations, String startDate, String endDate, double budget) {
+        super(String.join(", ", destinations), startDate, endDate, budget);
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("At least one destination is required");
+        }
+        this.destinations = new ArrayList<>(destinations);
+    }
+
+    public List<String> getDestinations() { return Collections.unmodifiableList(destinations); }
+
+    /**
+     * Copy of this request for a subset of its destinations, e.g. those one
+     * supplier shard holds, all other fields kept.
+     */
+    public MultiDestinationRequest withDestinations(List<String> destinations) {
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("At least one destination is required");
+        }
+        MultiDestinationRequest copy = (MultiDestinationRequest) withDestination(String.join(", ", destinations));
+        copy.destinations = new ArrayList<>(destinations);
+        return copy;
+    }
+}
@@ -0,0 +1,9 @@
+package models;
+
+/**
+ * Which options a supplier agent keeps when the planner caps its reply.
+ */
+public enum OptionOrder {
+    PRICE, // the cheapest options, up to the request's option limit
+    PARETO // options no other option beats on price and quality at once, cheapest first
+}
@@ -0,0 +1,9 @@
+package models;
+
+/**
+ * How the PlannerAgent orders the plans it returns.
+ */
+public enum RankingMode {
+    CHEAPEST, // the K cheapest plans by total cost
+    PARETO    // every plan not beaten on cost, hotel tier, travel time and comfort at once
+}
@@ -0,0 +1,9 @@
+package models;
+
+/**
+ * How the PlannerAgent searches the transport x hotel combinations.
+ */
+public enum SearchStrategy {
+    EXHAUSTIVE,  // visit every pair, keep the K cheapest (reference implementation)
+    BEST_FIRST   // walk price-sorted lists cheapest first and stop early
+}
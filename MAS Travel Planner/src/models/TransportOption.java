@@ -6,6 +6,8 @@ public class TransportOption implements Serializable {
     private String type;
     private double cost;
     private String destination;
+    private double durationHours; // door-to-door travel time
+    private int comfort;          // 1 (basic) to 5 (premium)
 
     // 🔥 REQUIRED by Jackson
     public TransportOption() {
@@ -17,6 +19,12 @@ public class TransportOption implements Serializable {
         this.destination = destination;
     }
 
+    public TransportOption(String type, double cost, String destination, double durationHours, int comfort) {
+        this(type, cost, destination);
+        this.durationHours = durationHours;
+        this.comfort = comfort;
+    }
+
     public String getType() {
         return type;
     }
@@ -37,4 +45,18 @@ public class TransportOption implements Serializable {
     public void setDestination(String destination) {
         this.destination = destination;
     }
+
+    public double getDurationHours() {
+        return durationHours;
+    }
+    public void setDurationHours(double durationHours) {
+        this.durationHours = durationHours;
+    }
+
+    public int getComfort() {
+        return comfort;
+    }
+    public void setComfort(int comfort) {
+        this.comfort = comfort;
+    }
 }
@@ -12,6 +12,9 @@ public class TravelPlan implements Serializable {
     private double hotelCost;
     private double totalCost;
     private int rank;
+    private int hotelStars;
+    private double transportHours;
+    private int transportComfort;
 
     public TravelPlan(String destination, String startDate, String endDate,
                       String transportType, double transportCost,
@@ -29,8 +32,22 @@ public class TravelPlan implements Serializable {
     public double getTotalCost() { return totalCost; }
     public void setRank(int rank) { this.rank = rank; }
 
+    public int getHotelStars() { return hotelStars; }
+    public double getTransportHours() { return transportHours; }
+    public int getTransportComfort() { return transportComfort; }
+
+    public void setQuality(int hotelStars, double transportHours, int transportComfort) {
+        this.hotelStars = hotelStars;
+        this.transportHours = transportHours;
+        this.transportComfort = transportComfort;
+    }
+
     @Override
     public String toString() {
+        String transport = transportHours > 0
+                ? String.format("%s, %.1fh, comfort %d/5", transportType, transportHours, transportComfort)
+                : transportType;
+        String hotel = hotelStars > 0 ? String.format("%s, %d★", hotelName, hotelStars) : hotelName;
         return String.format("Plan #%d:\n" +
                         "  Destination: %s\n" +
                         "  Dates: %s to %s\n" +
@@ -38,6 +55,6 @@ public class TravelPlan implements Serializable {
                         "  Hotel: %s ($%.2f)\n" +
                         "  TOTAL: $%.2f\n",
                 rank, destination, startDate, endDate,
-                transportType, transportCost, hotelName, hotelCost, totalCost);
+                transport, transportCost, hotel, hotelCost, totalCost);
     }
 }
\ No newline at end of file
@@ -1,12 +1,27 @@
 package models;
 
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+public class UserRequest implements Serializable, Cloneable {
+    public static final int DEFAULT_MAX_PLANS = 3;
+    public static final int MAX_PLANS_LIMIT = 50; // heaps, result arrays and supplier limits are sized by maxPlans
+    public static final int MAX_FLEX_DAYS = 7; // the date grid grows with (2 * flexDays + 1)^2
 
-public class UserRequest implements Serializable {
     private String destination;
     private String startDate;
     private String endDate;
     private double budget;
+    private int maxPlans = DEFAULT_MAX_PLANS; // how many ranked plans to return
+    private SearchStrategy searchStrategy = SearchStrategy.BEST_FIRST;
+    private long timeoutMs = 0; // how long the planner may wait for suppliers, 0 = planner default
+    private boolean progressive = false; // send provisional plans before every supplier has replied
+    private RankingMode rankingMode = RankingMode.CHEAPEST;
+    private int flexDays = 0; // also try start/end dates up to this many days earlier or later
+    private int optionLimit = 0; // most options a supplier returns per destination, 0 = all that fit
+    private OptionOrder optionOrder = OptionOrder.PRICE;
 
     public UserRequest(String destination, String startDate, String endDate, double budget) {
         this.destination = destination;
@@ -19,4 +34,101 @@ public class UserRequest implements Serializable {
     public String getStartDate() { return startDate; }
     public String getEndDate() { return endDate; }
     public double getBudget() { return budget; }
-}
\ No newline at end of file
+
+    /**
+     * Number of nights between the start and end date (YYYY-MM-DD).
+     *
+     * @throws IllegalArgumentException if a date is malformed or the end
+     *         date is not after the start date
+     */
+    public int getNights() {
+        try {
+            long nights = ChronoUnit.DAYS.between(LocalDate.parse(startDate), LocalDate.parse(endDate));
+            if (nights <= 0) {
+                throw new IllegalArgumentException("End date must be after start date");
+            }
+            return (int) nights;
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid date format. Use YYYY-MM-DD");
+        }
+    }
+
+    public int getMaxPlans() { return maxPlans; }
+    public void setMaxPlans(int maxPlans) { this.maxPlans = maxPlans; }
+
+    public SearchStrategy getSearchStrategy() { return searchStrategy; }
+    public void setSearchStrategy(SearchStrategy searchStrategy) { this.searchStrategy = searchStrategy; }
+
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public boolean isProgressive() { return progressive; }
+    public void setProgressive(boolean progressive) { this.progressive = progressive; }
+
+    public RankingMode getRankingMode() { return rankingMode; }
+    public void setRankingMode(RankingMode rankingMode) { this.rankingMode = rankingMode; }
+
+    public int getFlexDays() { return flexDays; }
+    public void setFlexDays(int flexDays) { this.flexDays = flexDays; }
+
+    public int getOptionLimit() { return optionLimit; }
+    public void setOptionLimit(int optionLimit) { this.optionLimit = optionLimit; }
+
+    public OptionOrder getOptionOrder() { return optionOrder; }
+    public void setOptionOrder(OptionOrder optionOrder) { this.optionOrder = optionOrder; }
+
+    /**
+     * Whether suppliers should trim their reply to the options that could
+     * be part of a plan instead of applying their own defaults.
+     */
+    public boolean hasOptionLimit() {
+        return optionLimit > 0 || optionOrder == OptionOrder.PARETO;
+    }
+
+    /**
+     * Copy of this request with a different budget, all other fields kept.
+     */
+    public UserRequest withBudget(double budget) {
+        UserRequest copy = copy();
+        copy.budget = budget;
+        return copy;
+    }
+
+    /**
+     * Copy of this request for another destination, all other fields kept.
+     */
+    public UserRequest withDestination(String destination) {
+        UserRequest copy = copy();
+        copy.destination = destination;
+        return copy;
+    }
+
+    /**
+     * Copy of this request with different dates, all other fields kept.
+     */
+    public UserRequest withDates(String startDate, String endDate) {
+        UserRequest copy = copy();
+        copy.startDate = startDate;
+        copy.endDate = endDate;
+        return copy;
+    }
+
+    /**
+     * Copy of this request asking suppliers for at most optionLimit options
+     * in the given order, all other fields kept.
+     */
+    public UserRequest withOptionLimit(int optionLimit, OptionOrder optionOrder) {
+        UserRequest copy = copy();
+        copy.optionLimit = optionLimit;
+        copy.optionOrder = optionOrder;
+        return copy;
+    }
+
+    private UserRequest copy() {
+        try {
+            return (UserRequest) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package planner;
+
+import models.HotelOption;
+import models.TransportOption;
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.util.List;
+
+/**
+ * Branch-and-bound plan search. Both option lists are sorted by price once,
+ * then a priority frontier walks the (transport, hotel) grid in increasing
+ * total cost. Plans come out cheapest first, so the search stops as soon as
+ * K plans are found or the cheapest remaining pair is over budget.
+ *
+ * Returns the same costs as TopKPlanSearch; plans with equal cost may be
+ * listed in a different order.
+ */
+public class BestFirstPlanSearch {
+
+    private BestFirstPlanSearch() {}
+
+    public static TravelPlan[] search(UserRequest request,
+                                      List<TransportOption> transports,
+                                      List<HotelOption> hotels,
+                                      int nights, int k) {
+        return search(request, new PriceSortedOptions(transports, hotels), nights, k);
+    }
+
+    public static TravelPlan[] search(UserRequest request, PriceSortedOptions options, int nights, int k) {
+        if (k <= 0 || options.isEmpty()) {
+            return new TravelPlan[0];
+        }
+
+        double budget = request.getBudget();
+        double[] transportCost = options.transportCost;
+        double[] hotelNightly = options.hotelNightly;
+        int[] transportOrder = options.transportOrder;
+        int[] hotelOrder = options.hotelOrder;
+
+        // Transports over budget on their own can never be part of a plan
+        int transportCount = transportOrder.length;
+        while (transportCount > 0 && transportCost[transportOrder[transportCount - 1]] > budget) {
+            transportCount--;
+        }
+        int hotelCount = hotelOrder.length;
+        if (transportCount == 0) {
+            return new TravelPlan[0];
+        }
+
+        // Frontier entries are grid positions (i, j) in the sorted lists.
+        // (i, j + 1) is always expanded, (i + 1, j) only from column 0,
+        // so every cell is reached exactly once.
+        CostHeap frontier = new CostHeap(Math.min(transportCount, k) + k, false);
+        frontier.push(transportCost[transportOrder[0]] + hotelNightly[hotelOrder[0]] * nights, encode(0, 0));
+
+        TravelPlan[] found = new TravelPlan[k];
+        int count = 0;
+        while (count < k && !frontier.isEmpty()) {
+            double total = frontier.peekCost();
+            if (total > budget) break; // everything left is at least this expensive
+            long cell = frontier.peekKey();
+            frontier.pop();
+
+            int i = (int) (cell >>> 32);
+            int j = (int) cell;
+            int t = transportOrder[i];
+            int h = hotelOrder[j];
+            found[count] = PlanFactory.create(request, options.transports.get(t), options.hotels.get(h),
+                    hotelNightly[h] * nights, count + 1);
+            count++;
+
+            if (j + 1 < hotelCount) {
+                frontier.push(transportCost[t] + hotelNightly[hotelOrder[j + 1]] * nights, encode(i, j + 1));
+            }
+            if (j == 0 && i + 1 < transportCount) {
+                frontier.push(transportCost[transportOrder[i + 1]] + hotelNightly[h] * nights, encode(i + 1, 0));
+            }
+        }
+
+        if (count == k) {
+            return found;
+        }
+        TravelPlan[] plans = new TravelPlan[count];
+        System.arraycopy(found, 0, plans, 0, count);
+        return plans;
+    }
+
+    private static long encode(int i, int j) {
+        return ((long) i << 32) | (j & 0xffffffffL);
+    }
+}
@@ -0,0 +1,101 @@
+package planner;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (cost, key) pairs stored in primitive arrays.
+ * Equal costs are ordered by key, so callers can keep a deterministic
+ * order by using the enumeration index as the key.
+ */
+public class CostHeap {
+    private final boolean maxHeap;
+    private double[] costs;
+    private long[] keys;
+    private int size = 0;
+
+    public CostHeap(int initialCapacity, boolean maxHeap) {
+        int capacity = Math.max(1, initialCapacity);
+        this.maxHeap = maxHeap;
+        this.costs = new double[capacity];
+        this.keys = new long[capacity];
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public double peekCost() { return costs[0]; }
+    public long peekKey() { return keys[0]; }
+
+    public void push(double cost, long key) {
+        if (size == costs.length) {
+            costs = Arrays.copyOf(costs, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        costs[size] = cost;
+        keys[size] = key;
+        siftUp(size);
+        size++;
+    }
+
+    /** Removes the root; read it with peekCost()/peekKey() first. */
+    public void pop() {
+        size--;
+        costs[0] = costs[size];
+        keys[0] = keys[size];
+        siftDown();
+    }
+
+    /** Replaces the root in place, cheaper than pop() followed by push(). */
+    public void replaceTop(double cost, long key) {
+        costs[0] = cost;
+        keys[0] = key;
+        siftDown();
+    }
+
+    /** True if (cost, key) would sit below the current root. */
+    public boolean beatsTop(double cost, long key) {
+        return before(costs[0], keys[0], cost, key);
+    }
+
+    // True if entry A belongs above entry B in this heap
+    private boolean before(double costA, long keyA, double costB, long keyB) {
+        if (maxHeap) {
+            return costA > costB || (costA == costB && keyA > keyB);
+        }
+        return costA < costB || (costA == costB && keyA < keyB);
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!before(costs[pos], keys[pos], costs[parent], keys[parent])) break;
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown() {
+        int pos = 0;
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= size) break;
+            int best = left;
+            int right = left + 1;
+            if (right < size && before(costs[right], keys[right], costs[left], keys[left])) {
+                best = right;
+            }
+            if (!before(costs[best], keys[best], costs[pos], keys[pos])) break;
+            swap(pos, best);
+            pos = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double c = costs[a];
+        costs[a] = costs[b];
+        costs[b] = c;
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+    }
+}
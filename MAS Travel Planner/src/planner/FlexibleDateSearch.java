@@ -0,0 +1,151 @@
+package planner;
+
+import models.RankingMode;
+import models.SearchStrategy;
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches every start/end date pair within +/- flexDays of the requested
+ * dates and returns the cheapest plans over the whole window.
+ *
+ * Option prices do not depend on the date, so the option lists are fetched
+ * and price-sorted once and shared by all date pairs; a hotel the supplier
+ * marked as full on a pair is left out of that pair only. The date grid is
+ * split across the common fork-join pool.
+ */
+public class FlexibleDateSearch {
+    private static final int PAIRS_PER_TASK = 4;
+
+    private FlexibleDateSearch() {}
+
+    /**
+     * The date pairs of the request's window, in the order the search
+     * numbers them: (start shift + flex) * (2 * flex + 1) + (end shift + flex).
+     * Pairs without a night are null.
+     */
+    public static List<LocalDate[]> dateGrid(UserRequest request) {
+        int flex = flexDays(request);
+        int span = 2 * flex + 1;
+        LocalDate start = LocalDate.parse(request.getStartDate());
+        LocalDate end = LocalDate.parse(request.getEndDate());
+        List<LocalDate[]> grid = new ArrayList<>(span * span);
+        for (int cell = 0; cell < span * span; cell++) {
+            LocalDate tripStart = start.plusDays(cell / span - flex);
+            LocalDate tripEnd = end.plusDays(cell % span - flex);
+            grid.add(tripEnd.isAfter(tripStart) ? new LocalDate[]{tripStart, tripEnd} : null);
+        }
+        return grid;
+    }
+
+    // The planner refuses larger windows; suppliers may be asked directly
+    private static int flexDays(UserRequest request) {
+        return Math.min(UserRequest.MAX_FLEX_DAYS, Math.max(0, request.getFlexDays()));
+    }
+
+    public static TravelPlan[] search(UserRequest request, PriceSortedOptions options, int k) {
+        if (k <= 0 || options.isEmpty()) {
+            return new TravelPlan[0];
+        }
+
+        int flex = flexDays(request);
+        int span = 2 * flex + 1;
+        GridTask task = new GridTask(request, options, k,
+                LocalDate.parse(request.getStartDate()), LocalDate.parse(request.getEndDate()),
+                flex, span, 0, span * span);
+        List<TravelPlan> candidates = ForkJoinPool.commonPool().invoke(task);
+
+        // Stable sort keeps grid order for equal costs, so results are repeatable
+        candidates.sort(Comparator.comparingDouble(TravelPlan::getTotalCost));
+        if (request.getRankingMode() == RankingMode.PARETO) {
+            candidates = ParetoPlanSearch.frontier(candidates);
+        }
+        int count = Math.min(k, candidates.size());
+        TravelPlan[] plans = new TravelPlan[count];
+        for (int i = 0; i < count; i++) {
+            plans[i] = candidates.get(i);
+            plans[i].setRank(i + 1);
+        }
+        return plans;
+    }
+
+    private static class GridTask extends RecursiveTask<List<TravelPlan>> {
+        private final UserRequest request;
+        private final PriceSortedOptions options;
+        private final int k;
+        private final LocalDate start;
+        private final LocalDate end;
+        private final int flex;
+        private final int span;
+        private final int from;
+        private final int to;
+
+        GridTask(UserRequest request, PriceSortedOptions options, int k, LocalDate start, LocalDate end,
+                 int flex, int span, int from, int to) {
+            this.request = request;
+            this.options = options;
+            this.k = k;
+            this.start = start;
+            this.end = end;
+            this.flex = flex;
+            this.span = span;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<TravelPlan> compute() {
+            if (to - from <= PAIRS_PER_TASK) {
+                return searchRange();
+            }
+            int mid = (from + to) >>> 1;
+            GridTask left = new GridTask(request, options, k, start, end, flex, span, from, mid);
+            GridTask right = new GridTask(request, options, k, start, end, flex, span, mid, to);
+            left.fork();
+            List<TravelPlan> rightPlans = right.compute();
+            List<TravelPlan> plans = left.join();
+            plans.addAll(rightPlans);
+            return plans;
+        }
+
+        private List<TravelPlan> searchRange() {
+            List<TravelPlan> plans = new ArrayList<>();
+            for (int cell = from; cell < to; cell++) {
+                LocalDate tripStart = start.plusDays(cell / span - flex);
+                LocalDate tripEnd = end.plusDays(cell % span - flex);
+                int nights = (int) ChronoUnit.DAYS.between(tripStart, tripEnd);
+                if (nights <= 0) {
+                    continue;
+                }
+
+                // Only hotels with rooms on these dates
+                PriceSortedOptions free = options.freeOn(cell);
+                if (free.isEmpty()) {
+                    continue;
+                }
+
+                UserRequest dated = request.withDates(tripStart.toString(), tripEnd.toString());
+                TravelPlan[] found;
+                if (request.getRankingMode() == RankingMode.PARETO) {
+                    found = ParetoPlanSearch.search(dated, free.transports, free.hotels, nights, k);
+                } else if (request.getSearchStrategy() == SearchStrategy.EXHAUSTIVE) {
+                    found = TopKPlanSearch.search(dated, free.transports, free.hotels, nights, k);
+                } else {
+                    found = BestFirstPlanSearch.search(dated, free, nights, k);
+                }
+                for (TravelPlan plan : found) {
+                    plans.add(plan);
+                }
+            }
+            return plans;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package planner;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU store of the last live supplier reply per search key, with
+ * TTL expiry, like PlanCache. The planner falls back on these options for
+ * provisional plans and when a supplier is down, so an entry that is too
+ * old to be believable is dropped rather than served.
+ *
+ * Used only from the PlannerAgent thread, so no locking.
+ */
+public class LastKnownOptions<T> {
+
+    private static final class Entry<T> {
+        final List<T> options;
+        final long expiresAt;
+
+        Entry(List<T> options, long expiresAt) {
+            this.options = options;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    public LastKnownOptions(int maxEntries, long ttlMs) {
+        this.ttlMs = ttlMs;
+        // Access order turns the map into an LRU list
+        this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public void put(String key, List<T> options) {
+        entries.put(key, new Entry<>(options, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * The options last stored under the key, or null if none or expired.
+     */
+    public List<T> get(String key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.options;
+    }
+
+    /**
+     * Drop expired entries; cheap enough to call from a periodic behaviour.
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<T>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+}
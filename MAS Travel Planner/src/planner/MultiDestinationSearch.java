@@ -0,0 +1,78 @@
+package planner;
+
+import models.HotelOption;
+import models.MultiDestinationRequest;
+import models.RankingMode;
+import models.TransportOption;
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Scores every destination of a comparison search in parallel and merges
+ * the results into one ranking by total cost.
+ */
+public class MultiDestinationSearch {
+
+    /**
+     * Plan search for a single destination's options.
+     */
+    public interface DestinationSearch {
+        TravelPlan[] search(UserRequest request, List<TransportOption> transports, List<HotelOption> hotels);
+    }
+
+    private MultiDestinationSearch() {}
+
+    public static TravelPlan[] search(MultiDestinationRequest request,
+                                      TransportOption[][] transports,
+                                      HotelOption[][] hotels,
+                                      int k, DestinationSearch perDestination) {
+        List<String> destinations = request.getDestinations();
+        int count = Math.min(destinations.size(), Math.min(transports.length, hotels.length));
+
+        // Ordered collect keeps destination order for equal-cost plans
+        List<TravelPlan[]> results = IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> searchDestination(request, destinations.get(i),
+                        transports[i], hotels[i], perDestination))
+                .collect(Collectors.toList());
+
+        List<TravelPlan> merged = new ArrayList<>();
+        for (TravelPlan[] plans : results) {
+            merged.addAll(Arrays.asList(plans));
+        }
+        merged.sort(Comparator.comparingDouble(TravelPlan::getTotalCost));
+        if (request.getRankingMode() == RankingMode.PARETO) {
+            merged = ParetoPlanSearch.frontier(merged);
+        }
+
+        TravelPlan[] top = new TravelPlan[Math.min(k, merged.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = merged.get(i);
+            top[i].setRank(i + 1);
+        }
+        return top;
+    }
+
+    private static TravelPlan[] searchDestination(UserRequest request, String destination,
+                                                  TransportOption[] transports, HotelOption[] hotels,
+                                                  DestinationSearch perDestination) {
+        if (transports == null || transports.length == 0 || hotels == null || hotels.length == 0) {
+            return new TravelPlan[0];
+        }
+        try {
+            return perDestination.search(request.withDestination(destination),
+                    Arrays.asList(transports), Arrays.asList(hotels));
+        } catch (RuntimeException e) {
+            // One bad destination should not sink the whole comparison
+            System.err.println("ERROR planning " + destination + ": " + e.getMessage());
+            return new TravelPlan[0];
+        }
+    }
+}
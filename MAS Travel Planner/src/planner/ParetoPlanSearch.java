@@ -0,0 +1,187 @@
+package planner;
+
+import models.HotelOption;
+import models.TransportOption;
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Multi-objective ranking: returns the plans that no other plan beats on
+ * total cost, hotel stars, travel time and comfort at the same time.
+ *
+ * A plan can only be on the frontier if its transport and its hotel are
+ * each on their own list's frontier, so both lists are reduced first. What
+ * is left is run through a sort-filter skyline: candidates sorted
+ * lexicographically are only compared against the frontier found so far,
+ * never pairwise against each other.
+ */
+public class ParetoPlanSearch {
+    // Upper bound on the frontier sent back, cheapest plans first
+    public static final int MAX_FRONTIER_PLANS = 25;
+
+    private ParetoPlanSearch() {}
+
+    public static TravelPlan[] search(UserRequest request,
+                                      List<TransportOption> transports,
+                                      List<HotelOption> hotels,
+                                      int nights, int limit) {
+        if (limit <= 0 || transports.isEmpty() || hotels.isEmpty()) {
+            return new TravelPlan[0];
+        }
+
+        int[] hotelFront = hotelFrontier(hotels);
+        int[] transportFront = transportFrontier(transports);
+
+        double budget = request.getBudget();
+        int candidateCount = 0;
+        long[] candidates = new long[transportFront.length * hotelFront.length];
+        double[][] objectives = new double[candidates.length][];
+        for (int t : transportFront) {
+            TransportOption transport = transports.get(t);
+            for (int h : hotelFront) {
+                HotelOption hotel = hotels.get(h);
+                double total = transport.getCost() + hotel.getCostPerNight() * nights;
+                if (total > budget) continue;
+                candidates[candidateCount] = ((long) t << 32) | h;
+                objectives[candidateCount] = new double[]{
+                        total, -hotel.getStars(), transport.getDurationHours(), -transport.getComfort()};
+                candidateCount++;
+            }
+        }
+
+        int[] front = skyline(objectives, candidateCount);
+        int count = Math.min(limit, front.length);
+        TravelPlan[] plans = new TravelPlan[count];
+        for (int i = 0; i < count; i++) {
+            long pair = candidates[front[i]];
+            int t = (int) (pair >>> 32);
+            int h = (int) pair;
+            HotelOption hotel = hotels.get(h);
+            plans[i] = PlanFactory.create(request, transports.get(t), hotel,
+                    hotel.getCostPerNight() * nights, i + 1);
+        }
+        return plans;
+    }
+
+    /**
+     * Frontier of already-built plans, cheapest first; used when results
+     * from several searches (dates, destinations) are merged.
+     */
+    public static List<TravelPlan> frontier(List<TravelPlan> plans) {
+        double[][] objectives = new double[plans.size()][];
+        for (int i = 0; i < objectives.length; i++) {
+            TravelPlan plan = plans.get(i);
+            objectives[i] = new double[]{
+                    plan.getTotalCost(), -plan.getHotelStars(), plan.getTransportHours(), -plan.getTransportComfort()};
+        }
+        List<TravelPlan> front = new ArrayList<>();
+        for (int index : skyline(objectives, objectives.length)) {
+            front.add(plans.get(index));
+        }
+        return front;
+    }
+
+    /**
+     * Hotels on the nightly price / stars frontier, cheapest first. No plan
+     * on the frontier uses any other hotel, so suppliers can send just these.
+     */
+    public static List<HotelOption> hotelFront(List<HotelOption> hotels) {
+        List<HotelOption> options = new ArrayList<>(hotels);
+        List<HotelOption> front = new ArrayList<>();
+        for (int index : hotelFrontier(options)) {
+            front.add(options.get(index));
+        }
+        return front;
+    }
+
+    /**
+     * Transports on the cost / travel time / comfort frontier, cheapest first.
+     */
+    public static List<TransportOption> transportFront(List<TransportOption> transports) {
+        List<TransportOption> options = new ArrayList<>(transports);
+        List<TransportOption> front = new ArrayList<>();
+        for (int index : transportFrontier(options)) {
+            front.add(options.get(index));
+        }
+        return front;
+    }
+
+    // Hotels not beaten on both nightly price and stars; 2-D sweep after sorting
+    private static int[] hotelFrontier(List<HotelOption> hotels) {
+        Integer[] order = indices(hotels.size());
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> hotels.get(i).getCostPerNight())
+                .thenComparing(i -> -hotels.get(i).getStars()));
+        int[] front = new int[order.length];
+        int count = 0;
+        int bestStars = Integer.MIN_VALUE;
+        for (int i : order) {
+            if (hotels.get(i).getStars() > bestStars) {
+                front[count++] = i;
+                bestStars = hotels.get(i).getStars();
+            }
+        }
+        return Arrays.copyOf(front, count);
+    }
+
+    private static int[] transportFrontier(List<TransportOption> transports) {
+        double[][] objectives = new double[transports.size()][];
+        for (int i = 0; i < objectives.length; i++) {
+            TransportOption transport = transports.get(i);
+            objectives[i] = new double[]{transport.getCost(), transport.getDurationHours(), -transport.getComfort()};
+        }
+        return skyline(objectives, objectives.length);
+    }
+
+    /**
+     * Sort-filter skyline over minimised objectives. After a lexicographic
+     * sort any dominating point comes first, so each point is checked only
+     * against the frontier so far. Identical points are kept once.
+     *
+     * @return indices of frontier points in ascending lexicographic order
+     */
+    private static int[] skyline(double[][] objectives, int count) {
+        Integer[] order = indices(count);
+        Arrays.sort(order, (a, b) -> compareLexicographic(objectives[a], objectives[b]));
+
+        int[] front = new int[count];
+        int size = 0;
+        for (int candidate : order) {
+            boolean dominated = false;
+            for (int f = 0; f < size && !dominated; f++) {
+                dominated = dominatesOrEquals(objectives[front[f]], objectives[candidate]);
+            }
+            if (!dominated) {
+                front[size++] = candidate;
+            }
+        }
+        return Arrays.copyOf(front, size);
+    }
+
+    private static boolean dominatesOrEquals(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > b[i]) return false;
+        }
+        return true;
+    }
+
+    private static int compareLexicographic(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int c = Double.compare(a[i], b[i]);
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    private static Integer[] indices(int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,155 @@
+package planner;
+
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of finished plan lists with TTL expiry.
+ *
+ * Requests are keyed on destination (trimmed, case-insensitive), dates,
+ * ranking mode and a budget bucket. An entry holds the cheapest plans for the bucket's
+ * ceiling budget, sorted by cost. Any request in the bucket is answered by
+ * taking the plans that fit its own budget. That gives the same result as a
+ * fresh search, because the plans that fit a lower budget are a prefix of
+ * that list.
+ *
+ * Used only from the PlannerAgent thread, so no locking.
+ */
+public class PlanCache {
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final double budgetBucket;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+    private long invalidations = 0;
+
+    public PlanCache(int maxEntries, long ttlMs, double budgetBucket) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.budgetBucket = budgetBucket;
+        // Access order turns the map into an LRU list
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PlanCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Budget the plans for this request's bucket are computed with.
+     */
+    public double bucketCeiling(double budget) {
+        return Math.ceil(budget / budgetBucket) * budgetBucket;
+    }
+
+    /**
+     * Cached plans for this request, or null on a miss.
+     */
+    public TravelPlan[] lookup(UserRequest request, int limit) {
+        String key = keyFor(request);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        if (entry.limit < limit && entry.plans.length >= entry.limit) {
+            // Cached list was cut at a smaller top-K than this request wants
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return withinBudget(entry.plans, request.getBudget(), limit);
+    }
+
+    /**
+     * Leading plans of a cost-sorted list that fit the budget, at most limit.
+     */
+    public static TravelPlan[] withinBudget(TravelPlan[] sortedPlans, double budget, int limit) {
+        int count = 0;
+        while (count < sortedPlans.length && count < limit
+                && sortedPlans[count].getTotalCost() <= budget) {
+            count++;
+        }
+        return count == sortedPlans.length ? sortedPlans : Arrays.copyOf(sortedPlans, count);
+    }
+
+    /**
+     * Store plans computed for {@link #bucketCeiling} of the request's budget.
+     */
+    public void put(UserRequest request, TravelPlan[] plans, int limit) {
+        entries.put(keyFor(request), new Entry(plans, limit, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Drop everything, e.g. when a supplier reports a new inventory version.
+     */
+    public void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /**
+     * Drop expired entries; cheap enough to call from a periodic behaviour.
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    public String stats() {
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : (100.0 * hits / lookups);
+        return String.format("size=%d hits=%d misses=%d hitRate=%.1f%% evictions=%d expired=%d invalidated=%d",
+                entries.size(), hits, misses, hitRate, evictions, expirations, invalidations);
+    }
+
+    /**
+     * Normalized search key: destination, dates, budget bucket and ranking mode.
+     */
+    public String keyFor(UserRequest request) {
+        String destination = request.getDestination() == null ? "" : request.getDestination().trim().toLowerCase();
+        long bucket = (long) Math.ceil(request.getBudget() / budgetBucket);
+        return destination + "|" + request.getStartDate() + "|" + request.getEndDate() + "|" + bucket
+                + "|" + request.getRankingMode();
+    }
+
+    private static class Entry {
+        final TravelPlan[] plans;
+        final int limit;
+        final long expiresAt;
+
+        Entry(TravelPlan[] plans, int limit, long expiresAt) {
+            this.plans = plans;
+            this.limit = limit;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
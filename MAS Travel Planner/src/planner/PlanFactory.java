@@ -0,0 +1,30 @@
+package planner;
+
+import models.HotelOption;
+import models.TransportOption;
+import models.TravelPlan;
+import models.UserRequest;
+
+/**
+ * Builds ranked TravelPlan objects for the plan search strategies.
+ */
+class PlanFactory {
+
+    private PlanFactory() {}
+
+    static TravelPlan create(UserRequest request, TransportOption transport,
+                             HotelOption hotel, double hotelTotalCost, int rank) {
+        TravelPlan plan = new TravelPlan(
+                request.getDestination(),
+                request.getStartDate(),
+                request.getEndDate(),
+                transport.getType(),
+                transport.getCost(),
+                hotel.getName(),
+                hotelTotalCost
+        );
+        plan.setRank(rank);
+        plan.setQuality(hotel.getStars(), transport.getDurationHours(), transport.getComfort());
+        return plan;
+    }
+}
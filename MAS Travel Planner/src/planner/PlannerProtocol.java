@@ -0,0 +1,67 @@
+package planner;
+
+/**
+ * ACL conventions shared between the PlannerAgent and the agents that
+ * consume its plans.
+ */
+public final class PlannerProtocol {
+
+    // User-defined ACL parameter telling the user how final a plan list is
+    public static final String PLAN_STATUS = "X-plan-status";
+
+    // Plans built partly from last-known supplier data; refined plans follow
+    public static final String STATUS_PROVISIONAL = "provisional";
+
+    // Plans built from live supplier replies; nothing else will follow
+    public static final String STATUS_FINAL = "final";
+
+    // Plans built partly from last-known supplier data because a supplier
+    // timed out or is failing fast; nothing else will follow
+    public static final String STATUS_STALE = "stale";
+
+    // Set by supplier agents on every reply; a change means prices or
+    // availability moved
+    public static final String INVENTORY_VERSION = "X-inventory-version";
+
+    // Set next to INVENTORY_VERSION: when the supplier loaded its database
+    // (epoch milliseconds) and how long the load took
+    public static final String INVENTORY_LOADED_AT = "X-inventory-loaded-at";
+    public static final String INVENTORY_LOAD_MS = "X-inventory-load-ms";
+
+    // Set on a REFUSE when the planner sheds load: milliseconds to wait
+    // before sending the search again
+    public static final String RETRY_AFTER = "X-retry-after-ms";
+
+    // QUERY_REF protocol of destination autocomplete: the content is what
+    // the user has typed, the INFORM reply a String[] of destinations
+    public static final String AUTOCOMPLETE = "destination-autocomplete";
+
+    // Set on an autocomplete reply when no destination matched the text:
+    // the suggestions are the destinations nearest to this place instead
+    public static final String NEAREST_TO = "X-nearest-to";
+
+    private PlannerProtocol() {}
+
+    public static boolean isProvisional(jade.lang.acl.ACLMessage msg) {
+        return STATUS_PROVISIONAL.equals(msg.getUserDefinedParameter(PLAN_STATUS));
+    }
+
+    public static boolean isStale(jade.lang.acl.ACLMessage msg) {
+        return STATUS_STALE.equals(msg.getUserDefinedParameter(PLAN_STATUS));
+    }
+
+    /**
+     * Retry hint of a REFUSE, or the given default when there is none.
+     */
+    public static long retryAfterMs(jade.lang.acl.ACLMessage msg, long defaultMs) {
+        String value = msg.getUserDefinedParameter(RETRY_AFTER);
+        if (value == null) {
+            return defaultMs;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultMs;
+        }
+    }
+}
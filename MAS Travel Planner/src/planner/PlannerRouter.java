@@ -0,0 +1,45 @@
+package planner;
+
+import jade.core.AID;
+import util.ConsistentHashRing;
+
+/**
+ * Picks the PlannerAgent instance for a user or session.
+ *
+ * Planners register a ServiceDirectory.PLANNER service with the DF. The
+ * router listens to the directory and keeps the instances on a
+ * consistent-hash ring. When a planner joins or leaves, only the keys it
+ * owned move to another instance.
+ */
+public class PlannerRouter implements ServiceDirectory.Listener {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final ConsistentHashRing<AID> ring = new ConsistentHashRing<>(VIRTUAL_NODES);
+
+    public PlannerRouter(ServiceDirectory directory) {
+        directory.addListener(this);
+    }
+
+    @Override
+    public void providerJoined(String serviceType, AID provider) {
+        if (ServiceDirectory.PLANNER.equals(serviceType)) {
+            ring.add(provider.getName(), provider);
+        }
+    }
+
+    @Override
+    public void providerLeft(String serviceType, AID provider) {
+        if (ServiceDirectory.PLANNER.equals(serviceType)) {
+            ring.remove(provider.getName());
+        }
+    }
+
+    /**
+     * Planner for the given routing key. Falls back to the agent named
+     * "planner" until the first DF notification has arrived.
+     */
+    public AID route(String key) {
+        AID planner = ring.get(key);
+        return planner != null ? planner : ServiceDirectory.fallback(ServiceDirectory.PLANNER);
+    }
+}
@@ -0,0 +1,149 @@
+package planner;
+
+import jade.lang.acl.ACLMessage;
+
+import models.HotelOption;
+import models.MultiDestinationRequest;
+import models.TransportOption;
+import models.UserRequest;
+import util.HashedWheelTimer;
+
+import java.util.List;
+
+/**
+ * State of a single in-flight search handled by the PlannerAgent.
+ * Each user request gets its own session, so concurrent searches never
+ * share options or reply to the wrong user.
+ */
+public class PlanningSession {
+    private final String sessionId;
+    private final ACLMessage userMessage;
+    private final UserRequest request;
+    private UserRequest supplierRequest;
+
+    private List<TransportOption> transportOptions;
+    private List<HotelOption> hotelOptions;
+    private TransportOption[][] transportBatch; // comparison searches, per destination
+    private HotelOption[][] hotelBatch;
+    private int transportPartsPending; // shard replies still missing from a split comparison
+    private int hotelPartsPending;
+    private boolean transportReceived = false;
+    private boolean hotelReceived = false;
+    private boolean completed = false;
+    private boolean provisionalSent = false;
+    private boolean usedLastKnown = false;
+    private HashedWheelTimer.Timeout timeout;
+
+    public PlanningSession(String sessionId, ACLMessage userMessage, UserRequest request) {
+        this.sessionId = sessionId;
+        this.userMessage = userMessage;
+        this.request = request;
+        this.supplierRequest = request;
+    }
+
+    public String getSessionId() { return sessionId; }
+    public UserRequest getRequest() { return request; }
+
+    /**
+     * Request sent to the suppliers and used for the full plan search; may
+     * ask for a wider budget than the user's so the result can be cached.
+     */
+    public UserRequest getSupplierRequest() { return supplierRequest; }
+    public void setSupplierRequest(UserRequest supplierRequest) { this.supplierRequest = supplierRequest; }
+
+    /**
+     * Build a reply addressed to the user that keeps the user's own
+     * conversation-id / in-reply-to fields intact.
+     */
+    public ACLMessage createUserReply(int performative) {
+        ACLMessage reply = userMessage.createReply();
+        reply.setPerformative(performative);
+        return reply;
+    }
+
+    public List<TransportOption> getTransportOptions() { return transportOptions; }
+    public void setTransportOptions(List<TransportOption> options) {
+        this.transportOptions = options;
+        this.transportReceived = true;
+    }
+
+    public List<HotelOption> getHotelOptions() { return hotelOptions; }
+    public void setHotelOptions(List<HotelOption> options) {
+        this.hotelOptions = options;
+        this.hotelReceived = true;
+    }
+
+    public TransportOption[][] getTransportBatch() { return transportBatch; }
+    public void setTransportBatch(TransportOption[][] batch) {
+        this.transportBatch = batch;
+        this.transportReceived = true;
+    }
+
+    public HotelOption[][] getHotelBatch() { return hotelBatch; }
+    public void setHotelBatch(HotelOption[][] batch) {
+        this.hotelBatch = batch;
+        this.hotelReceived = true;
+    }
+
+    /**
+     * The comparison was split across supplier shards; the batch is
+     * complete once every part has been merged.
+     */
+    public void expectTransportParts(int parts) { this.transportPartsPending = parts; }
+    public void expectHotelParts(int parts) { this.hotelPartsPending = parts; }
+
+    /**
+     * One shard's options, placed at the positions its destinations have in
+     * the full comparison.
+     */
+    public void mergeTransportPart(int[] positions, TransportOption[][] part) {
+        if (transportBatch == null) {
+            transportBatch = new TransportOption[destinationCount()][];
+        }
+        for (int i = 0; i < positions.length; i++) {
+            transportBatch[positions[i]] = part[i];
+        }
+        transportReceived = --transportPartsPending <= 0;
+    }
+
+    public void mergeHotelPart(int[] positions, HotelOption[][] part) {
+        if (hotelBatch == null) {
+            hotelBatch = new HotelOption[destinationCount()][];
+        }
+        for (int i = 0; i < positions.length; i++) {
+            hotelBatch[positions[i]] = part[i];
+        }
+        hotelReceived = --hotelPartsPending <= 0;
+    }
+
+    private int destinationCount() {
+        return ((MultiDestinationRequest) request).getDestinations().size();
+    }
+
+    public boolean isComparison() { return request instanceof MultiDestinationRequest; }
+
+    public boolean isTransportReceived() { return transportReceived; }
+    public boolean isHotelReceived() { return hotelReceived; }
+    public boolean isReady() { return transportReceived && hotelReceived; }
+
+    public boolean isUsedLastKnown() { return usedLastKnown; }
+    public void markUsedLastKnown() { this.usedLastKnown = true; }
+
+    public boolean isProvisionalSent() { return provisionalSent; }
+    public void markProvisionalSent() { this.provisionalSent = true; }
+
+    public boolean isCompleted() { return completed; }
+
+    /**
+     * Mark the session finished and cancel its pending timeout, if any.
+     */
+    public void markCompleted() {
+        this.completed = true;
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    public void setTimeout(HashedWheelTimer.Timeout timeout) { this.timeout = timeout; }
+}
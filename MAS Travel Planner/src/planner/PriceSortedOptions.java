@@ -0,0 +1,91 @@
+package planner;
+
+import models.HotelOption;
+import models.TransportOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transport and hotel options with their prices sorted once.
+ *
+ * Hotel order by nightly rate does not depend on the length of stay, so one
+ * instance can be shared by every search over the same option lists,
+ * e.g. all date pairs of a flexible-date search.
+ */
+public class PriceSortedOptions {
+    final List<TransportOption> transports;
+    final List<HotelOption> hotels;
+    final double[] transportCost;
+    final double[] hotelNightly;
+    final int[] transportOrder;
+    final int[] hotelOrder;
+    private final boolean stayLimited; // some hotel is full on some date pair
+
+    public PriceSortedOptions(List<TransportOption> transports, List<HotelOption> hotels) {
+        this.transports = transports;
+        this.hotels = hotels;
+
+        transportCost = new double[transports.size()];
+        for (int i = 0; i < transportCost.length; i++) {
+            transportCost[i] = transports.get(i).getCost();
+        }
+        hotelNightly = new double[hotels.size()];
+        for (int i = 0; i < hotelNightly.length; i++) {
+            hotelNightly[i] = hotels.get(i).getCostPerNight();
+        }
+        transportOrder = sortedOrder(transportCost);
+        hotelOrder = sortedOrder(hotelNightly);
+        stayLimited = hotels.stream().anyMatch(HotelOption::hasStayLimits);
+    }
+
+    // Same transports, fewer hotels
+    private PriceSortedOptions(PriceSortedOptions base, List<HotelOption> hotels) {
+        this.transports = base.transports;
+        this.hotels = hotels;
+        transportCost = base.transportCost;
+        transportOrder = base.transportOrder;
+        hotelNightly = new double[hotels.size()];
+        for (int i = 0; i < hotelNightly.length; i++) {
+            hotelNightly[i] = hotels.get(i).getCostPerNight();
+        }
+        hotelOrder = sortedOrder(hotelNightly);
+        stayLimited = false;
+    }
+
+    /**
+     * The options for one date pair of a flexible search, without the
+     * hotels that have no room on it.
+     */
+    PriceSortedOptions freeOn(int stay) {
+        if (!stayLimited) {
+            return this;
+        }
+        List<HotelOption> free = new ArrayList<>(hotels.size());
+        for (HotelOption hotel : hotels) {
+            if (hotel.isFreeOn(stay)) {
+                free.add(hotel);
+            }
+        }
+        return new PriceSortedOptions(this, free);
+    }
+
+    public boolean isEmpty() {
+        return transports.isEmpty() || hotels.isEmpty();
+    }
+
+    // Indices of costs in ascending order; ties keep their original order
+    private static int[] sortedOrder(double[] costs) {
+        Integer[] boxed = new Integer[costs.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> Double.compare(costs[a], costs[b]));
+        int[] order = new int[costs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,272 @@
+package planner;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.domain.DFService;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.Property;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.domain.FIPAException;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.proto.SubscriptionInitiator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Client-side cache of the providers registered with the DF.
+ *
+ * Each watched service type gets one DF subscription; the DF pushes the
+ * current registrations and every later change, so lookups never query the
+ * DF on the request path and new replicas are picked up without a restart.
+ * Until a type has a provider, lookups fall back to the agent whose local
+ * name is the service type, matching the single-instance launcher.
+ *
+ * Providers may describe themselves with service properties, e.g. the
+ * destinations a supplier shard holds; the directory keeps the latest
+ * ones and tells listeners when they change.
+ *
+ * The cache is filled on the agent thread and may be read from others
+ * (e.g. the Swing thread), hence the concurrent collections.
+ */
+public class ServiceDirectory {
+    public static final String PLANNER = "travel-planning";
+    public static final String TRANSPORT = "transport";
+    public static final String HOTEL = "hotel";
+    public static final String PAYMENT = "payment";
+    public static final String DESTINATIONS = "destinations";
+
+    // Supplier shard properties: its "index/count", and the destinations it
+    // holds joined by DESTINATION_SEPARATOR
+    public static final String SHARD_PROPERTY = "shard";
+    public static final String DESTINATIONS_PROPERTY = "destinations";
+    public static final String DESTINATION_SEPARATOR = ";";
+
+    private static final String DEFAULT_PLANNER = "planner";
+
+    /**
+     * Told about providers as the DF reports them.
+     */
+    public interface Listener {
+        void providerJoined(String serviceType, AID provider);
+        void providerLeft(String serviceType, AID provider);
+
+        // A known provider re-registered with different properties
+        default void providerChanged(String serviceType, AID provider) {}
+    }
+
+    private final Map<String, List<AID>> providers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nextProvider = new ConcurrentHashMap<>();
+    private final Map<String, Map<AID, Map<String, String>>> properties = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Subscribe to the given service types; call from the agent's setup().
+     */
+    public void watch(Agent agent, String... serviceTypes) {
+        for (String serviceType : serviceTypes) {
+            providers.putIfAbsent(serviceType, new CopyOnWriteArrayList<>());
+            properties.putIfAbsent(serviceType, new ConcurrentHashMap<>());
+
+            DFAgentDescription template = new DFAgentDescription();
+            ServiceDescription sd = new ServiceDescription();
+            sd.setType(serviceType);
+            template.addServices(sd);
+
+            ACLMessage subscription = DFService.createSubscriptionMessage(agent, agent.getDefaultDF(), template, null);
+            agent.addBehaviour(new SubscriptionInitiator(agent, subscription) {
+                @Override
+                protected void handleInform(ACLMessage inform) {
+                    try {
+                        for (DFAgentDescription dfd : DFService.decodeNotification(inform.getContent())) {
+                            update(myAgent, serviceType, dfd);
+                        }
+                    } catch (FIPAException e) {
+                        System.err.println("ERROR: Unable to decode " + serviceType + " registration - " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    private void update(Agent agent, String serviceType, DFAgentDescription dfd) {
+        List<AID> known = providers.get(serviceType);
+        AID provider = dfd.getName();
+        // A deregistration arrives as a description without services
+        if (dfd.getAllServices().hasNext()) {
+            Map<String, String> described = describedProperties(serviceType, dfd);
+            Map<String, String> previous = properties.get(serviceType).put(provider, described);
+            if (!known.contains(provider)) {
+                known.add(provider);
+                System.out.println(agent.getLocalName() + ": " + serviceType + " provider joined " +
+                        provider.getLocalName() + " (" + known.size() + " active)");
+                for (Listener listener : listeners) {
+                    listener.providerJoined(serviceType, provider);
+                }
+            } else if (!described.equals(previous)) {
+                for (Listener listener : listeners) {
+                    listener.providerChanged(serviceType, provider);
+                }
+            }
+        } else if (known.remove(provider)) {
+            properties.get(serviceType).remove(provider);
+            System.out.println(agent.getLocalName() + ": " + serviceType + " provider left " +
+                    provider.getLocalName() + " (" + known.size() + " active)");
+            for (Listener listener : listeners) {
+                listener.providerLeft(serviceType, provider);
+            }
+        }
+    }
+
+    private static Map<String, String> describedProperties(String serviceType, DFAgentDescription dfd) {
+        Map<String, String> described = new HashMap<>();
+        Iterator<?> services = dfd.getAllServices();
+        while (services.hasNext()) {
+            ServiceDescription sd = (ServiceDescription) services.next();
+            if (!serviceType.equals(sd.getType())) {
+                continue;
+            }
+            Iterator<?> props = sd.getAllProperties();
+            while (props.hasNext()) {
+                Property property = (Property) props.next();
+                if (property.getValue() != null) {
+                    described.put(property.getName(), property.getValue().toString());
+                }
+            }
+        }
+        return described;
+    }
+
+    /**
+     * A property the provider registered the service with, or null.
+     */
+    public String property(String serviceType, AID provider, String name) {
+        Map<AID, Map<String, String>> byProvider = properties.get(serviceType);
+        Map<String, String> described = byProvider == null ? null : byProvider.get(provider);
+        return described == null ? null : described.get(name);
+    }
+
+    /**
+     * All known providers of a service type, in registration order.
+     */
+    public List<AID> providers(String serviceType) {
+        List<AID> known = providers.get(serviceType);
+        return known == null ? new ArrayList<>() : new ArrayList<>(known);
+    }
+
+    /**
+     * One provider, rotating through replicas.
+     */
+    public AID pick(String serviceType) {
+        List<AID> known = providers(serviceType);
+        if (known.isEmpty()) {
+            return fallback(serviceType);
+        }
+        int next = nextProvider.merge(serviceType, 1, Integer::sum);
+        return known.get(Math.floorMod(next, known.size()));
+    }
+
+    /**
+     * A provider other than the given one, rotating through replicas;
+     * null when there is no other replica.
+     */
+    public AID pickOther(String serviceType, AID exclude) {
+        List<AID> known = providers(serviceType);
+        known.remove(exclude);
+        if (known.isEmpty()) {
+            return null;
+        }
+        int next = nextProvider.merge(serviceType, 1, Integer::sum);
+        return known.get(Math.floorMod(next, known.size()));
+    }
+
+    public static AID fallback(String serviceType) {
+        String name = PLANNER.equals(serviceType) ? DEFAULT_PLANNER : serviceType;
+        return new AID(name, AID.ISLOCALNAME);
+    }
+
+    /**
+     * Everything except DF notifications, which the subscription behaviours
+     * consume; use it in the agent's own receive loop.
+     */
+    public static MessageTemplate notFromDF(Agent agent) {
+        return MessageTemplate.not(MessageTemplate.MatchSender(agent.getDefaultDF()));
+    }
+
+    /**
+     * Register the agent as a provider of the given service type.
+     */
+    public static void register(Agent agent, String serviceType) {
+        register(agent, serviceType, Collections.emptyMap());
+    }
+
+    /**
+     * Register with service properties that watchers can read back.
+     */
+    public static void register(Agent agent, String serviceType, Map<String, String> serviceProperties) {
+        try {
+            DFService.register(agent, describe(agent, serviceType, serviceProperties));
+        } catch (FIPAException e) {
+            System.err.println("ERROR: " + agent.getLocalName() + " could not register " + serviceType +
+                    " with the DF - " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replace the properties of an existing registration; watchers are told
+     * through their subscriptions.
+     */
+    public static void modify(Agent agent, String serviceType, Map<String, String> serviceProperties) {
+        try {
+            DFService.modify(agent, describe(agent, serviceType, serviceProperties));
+        } catch (FIPAException e) {
+            System.err.println("ERROR: " + agent.getLocalName() + " could not update " + serviceType +
+                    " with the DF - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Properties a supplier shard registers with: its spec and the
+     * destinations it holds.
+     */
+    public static Map<String, String> shardProperties(String shard, Collection<String> destinations) {
+        Map<String, String> shardProperties = new HashMap<>();
+        shardProperties.put(SHARD_PROPERTY, shard);
+        shardProperties.put(DESTINATIONS_PROPERTY, String.join(DESTINATION_SEPARATOR, destinations));
+        return shardProperties;
+    }
+
+    private static DFAgentDescription describe(Agent agent, String serviceType, Map<String, String> serviceProperties) {
+        DFAgentDescription dfd = new DFAgentDescription();
+        dfd.setName(agent.getAID());
+        ServiceDescription sd = new ServiceDescription();
+        sd.setType(serviceType);
+        sd.setName(agent.getLocalName());
+        for (Map.Entry<String, String> entry : serviceProperties.entrySet()) {
+            sd.addProperties(new Property(entry.getKey(), entry.getValue()));
+        }
+        dfd.addServices(sd);
+        return dfd;
+    }
+
+    public static void deregister(Agent agent) {
+        try {
+            DFService.deregister(agent);
+        } catch (FIPAException e) {
+            System.err.println("ERROR: " + agent.getLocalName() + " could not deregister - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package planner;
+
+import jade.core.AID;
+
+import inventory.DestinationIndex;
+import inventory.GeoIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routing table from destination to the supplier agents holding it.
+ *
+ * Supplier shards register the destinations they hold as a DF service
+ * property (ServiceDirectory.DESTINATIONS_PROPERTY). The router rebuilds
+ * its table whenever a shard joins, leaves or re-registers, and resolves
+ * what the user typed to a destination the same way the shards do, with a
+ * DestinationIndex over the advertised names and the alias and coordinate
+ * files, so "nyc" or "Lyon" reach the shard that will answer for them. The
+ * files are read once, when the router is created; without them routing
+ * falls back to exact destination names.
+ *
+ * Suppliers without the property hold everything and are candidates for
+ * every destination; with no shards at all the router is plain round-robin
+ * over the directory.
+ */
+public class ShardRouter implements ServiceDirectory.Listener {
+
+    private static final class Table {
+        final DestinationIndex index;
+        final Map<String, List<AID>> owners;  // destination -> shards holding it
+        final List<AID> unsharded;
+
+        Table(DestinationIndex index, Map<String, List<AID>> owners, List<AID> unsharded) {
+            this.index = index;
+            this.owners = owners;
+            this.unsharded = unsharded;
+        }
+    }
+
+    private final ServiceDirectory directory;
+    private final Map<String, List<String>> aliases;
+    private final Map<String, double[]> coordinates;
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nextOwner = new ConcurrentHashMap<>();
+
+    public ShardRouter(ServiceDirectory directory, File databaseDir) {
+        this.directory = directory;
+        this.aliases = DestinationIndex.loadAliases(required(databaseDir, DestinationIndex.ALIAS_FILE));
+        this.coordinates = GeoIndex.loadCoordinates(required(databaseDir, DestinationIndex.COORDINATES_FILE));
+        directory.addListener(this);
+    }
+
+    // A planner running apart from the supplier database may lack the files
+    private static File required(File databaseDir, String name) {
+        File file = new File(databaseDir, name);
+        if (!file.isFile()) {
+            System.err.println("ShardRouter: ERROR " + file.getAbsolutePath() + " not found, " +
+                    "routing by exact destination names only");
+        }
+        return file;
+    }
+
+    @Override
+    public void providerJoined(String serviceType, AID provider) {
+        rebuild(serviceType);
+    }
+
+    @Override
+    public void providerLeft(String serviceType, AID provider) {
+        rebuild(serviceType);
+    }
+
+    @Override
+    public void providerChanged(String serviceType, AID provider) {
+        rebuild(serviceType);
+    }
+
+    private void rebuild(String serviceType) {
+        if (!ServiceDirectory.HOTEL.equals(serviceType) && !ServiceDirectory.TRANSPORT.equals(serviceType)) {
+            return;
+        }
+        Map<String, List<AID>> owners = new HashMap<>();
+        List<AID> unsharded = new ArrayList<>();
+        for (AID provider : directory.providers(serviceType)) {
+            String held = directory.property(serviceType, provider, ServiceDirectory.DESTINATIONS_PROPERTY);
+            if (held == null) {
+                unsharded.add(provider);
+                continue;
+            }
+            for (String destination : held.split(ServiceDirectory.DESTINATION_SEPARATOR)) {
+                if (!destination.isEmpty()) {
+                    owners.computeIfAbsent(destination, d -> new ArrayList<>()).add(provider);
+                }
+            }
+        }
+        DestinationIndex index = DestinationIndex.of(new TreeSet<>(owners.keySet()), aliases, coordinates);
+        tables.put(serviceType, new Table(index, owners, unsharded));
+        System.out.println("ShardRouter: " + serviceType + " routing " + index.destinations().size() +
+                " destinations over " + (directory.providers(serviceType).size() - unsharded.size()) +
+                " shard(s)" + (unsharded.isEmpty() ? "" : " and " + unsharded.size() + " full replica(s)"));
+    }
+
+    /**
+     * Agents that can answer for the destination: its shard replicas and
+     * any unsharded supplier. Falls back to every known provider when no
+     * table has been built yet.
+     */
+    public List<AID> owners(String serviceType, String destination) {
+        Table table = tables.get(serviceType);
+        if (table == null) {
+            return directory.providers(serviceType);
+        }
+        List<AID> candidates = new ArrayList<>(table.owners.getOrDefault(shardKey(table, destination),
+                Collections.emptyList()));
+        candidates.addAll(table.unsharded);
+        return candidates.isEmpty() ? directory.providers(serviceType) : candidates;
+    }
+
+    /**
+     * One agent for the destination, rotating through its replicas.
+     */
+    public AID pick(String serviceType, String destination) {
+        List<AID> candidates = owners(serviceType, destination);
+        if (candidates.isEmpty()) {
+            return ServiceDirectory.fallback(serviceType);
+        }
+        int next = nextOwner.merge(serviceType, 1, Integer::sum);
+        return candidates.get(Math.floorMod(next, candidates.size()));
+    }
+
+    /**
+     * Another replica for the destination, or null when there is none.
+     */
+    public AID pickOther(String serviceType, String destination, AID exclude) {
+        List<AID> candidates = owners(serviceType, destination);
+        candidates.remove(exclude);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        int next = nextOwner.merge(serviceType, 1, Integer::sum);
+        return candidates.get(Math.floorMod(next, candidates.size()));
+    }
+
+    /**
+     * Positions of a comparison's destinations grouped by the agents that
+     * can answer for them, one group per set of replicas.
+     */
+    public List<int[]> partition(String serviceType, List<String> destinations) {
+        Map<List<AID>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < destinations.size(); i++) {
+            groups.computeIfAbsent(owners(serviceType, destinations.get(i)), o -> new ArrayList<>()).add(i);
+        }
+        List<int[]> partition = new ArrayList<>(groups.size());
+        for (List<Integer> positions : groups.values()) {
+            partition.add(positions.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return partition;
+    }
+
+    // Destination the shards will serve the text from: by name or alias, else
+    // the nearest located destination, else the catch-all entry
+    private static String shardKey(Table table, String destination) {
+        String resolved = table.index.resolve(destination);
+        if (resolved != null) {
+            return resolved;
+        }
+        for (GeoIndex.Nearby nearby : table.index.nearest(destination, 1)) {
+            return nearby.getDestination();
+        }
+        return DestinationIndex.FALLBACK;
+    }
+}
@@ -0,0 +1,101 @@
+package planner;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import util.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One outstanding REQUEST to a supplier agent. Sessions that need the same
+ * supplier data while it is in flight join the query instead of sending
+ * their own, and all of them are served by the single reply.
+ *
+ * When the supplier is replicated the query may be hedged: a copy of the
+ * same REQUEST goes to a second replica, the first INFORM wins and the
+ * other reply is dropped as unknown.
+ *
+ * A comparison whose destinations live on different supplier shards is
+ * sent as one query per shard; each part knows where its destinations sit
+ * in the full comparison.
+ */
+public class SupplierQuery {
+    private final String conversationId;
+    private final String supplier;
+    private final String key;
+    private final String routingKey;
+    private int[] batchPositions; // null unless this is part of a comparison
+    private final List<PlanningSession> waiters = new ArrayList<>();
+    private HashedWheelTimer.Timeout expiry;
+
+    private ACLMessage request;
+    private AID target;
+    private long sentAt;
+    private AID hedgeTarget;
+    private long hedgeSentAt;
+    private HashedWheelTimer.Timeout hedge;
+
+    public SupplierQuery(String conversationId, String supplier, String key, String routingKey) {
+        this.conversationId = conversationId;
+        this.supplier = supplier;
+        this.key = key;
+        this.routingKey = routingKey;
+    }
+
+    public String getConversationId() { return conversationId; }
+    public String getSupplier() { return supplier; }
+    public String getKey() { return key; }
+
+    // Destination the target shard was chosen by; hedges go to its replicas
+    public String getRoutingKey() { return routingKey; }
+
+    public int[] getBatchPositions() { return batchPositions; }
+    public void setBatchPositions(int[] batchPositions) { this.batchPositions = batchPositions; }
+
+    public void addWaiter(PlanningSession session) { waiters.add(session); }
+    public List<PlanningSession> getWaiters() { return waiters; }
+
+    public void setSent(ACLMessage request, AID target, long sentAt) {
+        this.request = request;
+        this.target = target;
+        this.sentAt = sentAt;
+    }
+
+    public ACLMessage getRequest() { return request; }
+    public AID getTarget() { return target; }
+
+    public void setHedgeSent(AID hedgeTarget, long hedgeSentAt) {
+        this.hedgeTarget = hedgeTarget;
+        this.hedgeSentAt = hedgeSentAt;
+    }
+
+    public boolean isHedgeWinner(AID replier) {
+        return hedgeTarget != null && hedgeTarget.equals(replier);
+    }
+
+    /**
+     * Time the replying replica was asked, for its latency sample.
+     */
+    public long sentAtFor(AID replier) {
+        return isHedgeWinner(replier) ? hedgeSentAt : sentAt;
+    }
+
+    public void setHedge(HashedWheelTimer.Timeout hedge) { this.hedge = hedge; }
+
+    public void cancelHedge() {
+        if (hedge != null) {
+            hedge.cancel();
+            hedge = null;
+        }
+    }
+
+    public void setExpiry(HashedWheelTimer.Timeout expiry) { this.expiry = expiry; }
+
+    public void cancelExpiry() {
+        if (expiry != null) {
+            expiry.cancel();
+            expiry = null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package planner;
+
+import models.HotelOption;
+import models.TransportOption;
+import models.TravelPlan;
+import models.UserRequest;
+
+import java.util.List;
+
+/**
+ * Finds the K cheapest transport x hotel combinations within budget.
+ * Costs are copied into primitive arrays once and the best K candidates
+ * are kept in a bounded max-heap, so only the winners are turned into
+ * TravelPlan objects.
+ *
+ * Every pair is visited, which makes this the reference implementation
+ * the faster strategies are checked against.
+ */
+public class TopKPlanSearch {
+
+    private TopKPlanSearch() {}
+
+    public static TravelPlan[] search(UserRequest request,
+                                      List<TransportOption> transports,
+                                      List<HotelOption> hotels,
+                                      int nights, int k) {
+        if (k <= 0 || transports.isEmpty() || hotels.isEmpty()) {
+            return new TravelPlan[0];
+        }
+
+        int hotelCount = hotels.size();
+        double[] transportCost = new double[transports.size()];
+        for (int i = 0; i < transportCost.length; i++) {
+            transportCost[i] = transports.get(i).getCost();
+        }
+        double[] hotelCost = new double[hotelCount];
+        for (int i = 0; i < hotelCount; i++) {
+            hotelCost[i] = hotels.get(i).getCostPerNight() * nights;
+        }
+
+        double budget = request.getBudget();
+        CostHeap best = new CostHeap(k, true);
+
+        for (int t = 0; t < transportCost.length; t++) {
+            double base = transportCost[t];
+            if (base > budget) continue;
+            for (int h = 0; h < hotelCount; h++) {
+                double total = base + hotelCost[h];
+                if (total > budget) continue;
+                long index = (long) t * hotelCount + h;
+
+                if (best.size() < k) {
+                    best.push(total, index);
+                } else if (best.beatsTop(total, index)) {
+                    best.replaceTop(total, index);
+                }
+            }
+        }
+
+        // Drain the max-heap back to front to get ascending order
+        TravelPlan[] plans = new TravelPlan[best.size()];
+        for (int i = plans.length - 1; i >= 0; i--) {
+            long index = best.peekKey();
+            best.pop();
+            int t = (int) (index / hotelCount);
+            int h = (int) (index % hotelCount);
+            plans[i] = PlanFactory.create(request, transports.get(t), hotels.get(h), hotelCost[h], i + 1);
+        }
+        return plans;
+    }
+}
@@ -0,0 +1,81 @@
+package util;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ * CLOSED lets every call through. After failureThreshold failures in a row
+ * it goes OPEN and rejects calls for openMs. It then goes HALF_OPEN and
+ * lets one probe through at a time. After probeSuccesses successful probes
+ * it closes again; a failed probe re-opens it.
+ *
+ * Not thread-safe; owned by one agent.
+ */
+public class CircuitBreaker {
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMs;
+    private final int probeSuccesses;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private int successes;
+    private boolean probeInFlight;
+    private long openedAt;
+    private long rejected;
+
+    public CircuitBreaker(int failureThreshold, long openMs, int probeSuccesses) {
+        if (failureThreshold <= 0 || probeSuccesses <= 0) {
+            throw new IllegalArgumentException("thresholds must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.probeSuccesses = probeSuccesses;
+    }
+
+    /**
+     * Whether a call may go out now. In HALF_OPEN a true return makes the
+     * call the probe, so its outcome must be recorded.
+     */
+    public boolean allowRequest(long nowMs) {
+        if (state == State.OPEN && nowMs - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            successes = 0;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    public void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (++successes >= probeSuccesses) {
+                state = State.CLOSED;
+                failures = 0;
+            }
+        } else if (state == State.CLOSED) {
+            failures = 0;
+        }
+    }
+
+    public void recordFailure(long nowMs) {
+        if (state == State.HALF_OPEN || (state == State.CLOSED && ++failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = nowMs;
+            probeInFlight = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return state + " (failures=" + failures + ", rejected=" + rejected + ")";
+    }
+}
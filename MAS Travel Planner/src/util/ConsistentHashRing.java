@@ -0,0 +1,77 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring with virtual nodes. Adding or removing a node only
+ * moves the keys that hashed to that node's points, about 1/N of them.
+ *
+ * Members are updated from an agent thread and read from others (e.g. the
+ * Swing thread), so all access is synchronized.
+ */
+public class ConsistentHashRing<T> {
+    private final int virtualNodes;
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+    private final Map<String, T> members = new TreeMap<>();
+
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Add a member under a stable id; re-adding an id is a no-op.
+     */
+    public synchronized boolean add(String id, T node) {
+        if (members.containsKey(id)) {
+            return false;
+        }
+        members.put(id, node);
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.put(hash(id + "#" + i), node);
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(String id) {
+        if (members.remove(id) == null) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            ring.remove(hash(id + "#" + i));
+        }
+        return true;
+    }
+
+    /**
+     * Member owning the key, or null when the ring is empty.
+     */
+    public synchronized T get(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        SortedMap<Long, T> tail = ring.tailMap(hash(key));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    // First 8 bytes of MD5: well spread and stable across JVMs
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
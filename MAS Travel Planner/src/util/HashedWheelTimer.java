@@ -0,0 +1,171 @@
+package util;
+
+/**
+ * Hashed timing wheel for agent timeouts.
+ *
+ * Timeouts are hashed into a fixed ring of buckets by their deadline tick.
+ * Scheduling and cancelling are O(1) (doubly linked bucket lists), and each
+ * tick only looks at one bucket, so thousands of pending timeouts cost about
+ * the same as one.
+ *
+ * The wheel has no thread of its own and is not thread-safe: the owning agent
+ * drives it with a {@link WheelTimerBehaviour}, so every task runs on the
+ * agent thread just like a WakerBehaviour would.
+ */
+public class HashedWheelTimer {
+
+    private final long tickMs;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+    private long currentTick = 0;
+
+    public HashedWheelTimer(long tickMs, int wheelSize) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMs = tickMs;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public long getTickMs() { return tickMs; }
+
+    /**
+     * Schedule a task to run once after the given delay.
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        long deadline = System.currentTimeMillis() + Math.max(0, delayMs);
+        // Round up so a timeout never fires early
+        long deadlineTick = (deadline - startTime + tickMs - 1) / tickMs;
+        Timeout timeout = new Timeout(task, Math.max(deadlineTick, currentTick));
+        wheel[(int) (timeout.deadlineTick & mask)].add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Run every timeout whose deadline is at or before the given time.
+     *
+     * @return number of tasks that fired
+     */
+    public int advance(long nowMs) {
+        long targetTick = (nowMs - startTime) / tickMs;
+        int fired = 0;
+        while (currentTick <= targetTick) {
+            // Move on before running the tasks, so one they schedule for
+            // "now" lands in the next bucket, not the detached one
+            long tick = currentTick++;
+            fired += expireBucket(wheel[(int) (tick & mask)], tick);
+        }
+        return fired;
+    }
+
+    private int expireBucket(Bucket bucket, long tick) {
+        // Detach first, then run, so tasks can freely schedule or cancel
+        Timeout expired = null;
+        Timeout node = bucket.head;
+        while (node != null) {
+            Timeout next = node.next;
+            if (node.deadlineTick <= tick) {
+                bucket.remove(node);
+                node.next = expired;
+                expired = node;
+            }
+            node = next;
+        }
+
+        int fired = 0;
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            if (!expired.cancelled) {
+                expired.expired = true;
+                try {
+                    expired.task.run();
+                } catch (Exception e) {
+                    System.err.println("ERROR in timer task: " + e.getMessage());
+                    e.printStackTrace();
+                }
+                fired++;
+            }
+            expired = next;
+        }
+        return fired;
+    }
+
+    /**
+     * Handle for a scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+        private boolean cancelled = false;
+        private boolean expired = false;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel the task in O(1).
+         *
+         * @return false if it already fired or was cancelled
+         */
+        public boolean cancel() {
+            if (cancelled || expired) {
+                return false;
+            }
+            cancelled = true;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+            return true;
+        }
+
+        public boolean isCancelled() { return cancelled; }
+        public boolean isExpired() { return expired; }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
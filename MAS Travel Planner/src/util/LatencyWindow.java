@@ -0,0 +1,46 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * The last N latency samples in a ring buffer, with nearest-rank
+ * percentiles over the window. Old samples fall out as new ones arrive,
+ * so the percentiles follow a supplier whose speed changes.
+ *
+ * Not thread-safe; owned by one agent.
+ */
+public class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    public LatencyWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.samples = new long[capacity];
+    }
+
+    public void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public int size() { return count; }
+
+    /**
+     * Nearest-rank percentile, p in (0, 100]; -1 when there are no samples.
+     */
+    public long percentile(double p) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * count);
+        return sorted[Math.min(count, Math.max(1, rank)) - 1];
+    }
+}
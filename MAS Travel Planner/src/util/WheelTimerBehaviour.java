@@ -0,0 +1,22 @@
+package util;
+
+import jade.core.Agent;
+import jade.core.behaviours.TickerBehaviour;
+
+/**
+ * Drives a HashedWheelTimer from the agent's own thread. One of these
+ * replaces the per-request WakerBehaviours an agent would otherwise add.
+ */
+public class WheelTimerBehaviour extends TickerBehaviour {
+    private final HashedWheelTimer timer;
+
+    public WheelTimerBehaviour(Agent agent, HashedWheelTimer timer) {
+        super(agent, timer.getTickMs());
+        this.timer = timer;
+    }
+
+    @Override
+    protected void onTick() {
+        timer.advance(System.currentTimeMillis());
+    }
+}